@@ -0,0 +1,95 @@
+package com.asiainfo.ftp01.benchmark;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 基准测试用的合成数据
+ */
+public final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 生成与物联网采集数据相似的文本: 每行一条以|分隔的记录
+     *
+     * @param size 字节数
+     * @return
+     */
+    public static byte[] records(int size) {
+        Random random = new Random(size);
+        StringBuilder sb = new StringBuilder(size + 128);
+        while (sb.length() < size) {
+            sb.append("20190130").append(String.format("%06d", random.nextInt(240000)))
+                    .append("|8986").append(100000000L + random.nextInt(900000000))
+                    .append("|460").append(random.nextInt(100))
+                    .append('|').append(random.nextInt(100000))
+                    .append('|').append(random.nextInt(2) == 0 ? "GPRS" : "NB-IOT")
+                    .append('\n');
+        }
+        sb.setLength(size);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 生成 ls -l 风格的目录列表
+     *
+     * @param entries 条目数
+     * @return
+     */
+    public static byte[] unixListing(int entries) {
+        StringBuilder sb = new StringBuilder(entries * 80);
+        for (int i = 0; i < entries; i++) {
+            sb.append("-rw-r--r--    1 1001     1001       ").append(10000 + i * 7L)
+                    .append(" Jan 30 10:").append(String.format("%02d", i % 60))
+                    .append(" ftpc270_").append(String.format("%08d", i)).append(".gz\r\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 生成MLSD格式的目录列表
+     *
+     * @param entries 条目数
+     * @return
+     */
+    public static byte[] mlsdListing(int entries) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss", Locale.ROOT);
+        long base = 1548813600000L;
+        StringBuilder sb = new StringBuilder(entries * 80);
+        for (int i = 0; i < entries; i++) {
+            sb.append("type=file;size=").append(10000 + i * 7L)
+                    .append(";modify=").append(format.format(new Date(base + i * 1000L)))
+                    .append("; ftpc270_").append(String.format("%08d", i)).append(".gz\r\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 只计数的输出流, 避免输出缓冲区扩容影响测试结果
+     */
+    public static class CountingSink extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.asiainfo.ftp01.benchmark;
+
+import com.asiainfo.ftp01.Ftp01Application;
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.source.SourceRegistry;
+import com.asiainfo.ftp01.task.DownLoadTask;
+import com.asiainfo.ftp01.utils.GZipUtils;
+import org.mockftpserver.fake.FakeFtpServer;
+import org.mockftpserver.fake.UserAccount;
+import org.mockftpserver.fake.filesystem.DirectoryEntry;
+import org.mockftpserver.fake.filesystem.FileEntry;
+import org.mockftpserver.fake.filesystem.FileSystem;
+import org.mockftpserver.fake.filesystem.UnixFakeFileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 端到端的下载周期: 进程内的FakeFtpServer上每轮放一批新的.gz文件, 执行一次DownLoadTask.download()
+ * (列表、比对索引、并发下载、解压)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(1)
+public class DownloadCycleBenchmark {
+
+    private static final String HOME = "/home/ftpc270";
+
+    private static final String OUTGOING = HOME + "/outgoing";
+
+    @Param({"200"})
+    private int files;
+
+    @Param({"65536"})
+    private int fileSize;
+
+    @Param({"1", "4"})
+    private int concurrency;
+
+    private FakeFtpServer server;
+
+    private FileSystem fileSystem;
+
+    private File workDir;
+
+    private ConfigurableApplicationContext context;
+
+    private DownLoadTask downLoadTask;
+    private SourceContext source;
+
+    private byte[] payload;
+
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // devtools会在重启类加载器中重新执行main方法, 基准测试中关闭
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        payload = GZipUtils.compress(BenchmarkData.records(fileSize));
+        fileSystem = new UnixFakeFileSystem();
+        fileSystem.add(new DirectoryEntry(OUTGOING));
+        server = new FakeFtpServer();
+        server.setServerControlPort(0);
+        server.addUserAccount(new UserAccount("ftpc270", "ftpc270", HOME));
+        server.setFileSystem(fileSystem);
+        server.start();
+
+        workDir = Files.createTempDirectory("ftp-bench").toFile();
+        File localPath = new File(workDir, "temp");
+        File compressPath = new File(workDir, "data");
+        localPath.mkdirs();
+        compressPath.mkdirs();
+        context = new SpringApplicationBuilder(Ftp01Application.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=benchmark",
+                        "--ftp.info.host=127.0.0.1",
+                        "--ftp.info.port=" + server.getServerControlPort(),
+                        "--ftp.info.username=ftpc270",
+                        "--ftp.info.password=ftpc270",
+                        "--ftp.info.remotePath=outgoing",
+                        "--ftp.info.localPath=" + localPath.getPath(),
+                        "--ftp.info.compressPath=" + compressPath.getPath(),
+                        "--ftp.info.concurrency=" + concurrency,
+                        "--ftp.info.maxSessions=" + (concurrency + 1),
+                        "--ftp.quartz.enabled=false",
+                        "--logging.level.com.asiainfo=WARN");
+        downLoadTask = context.getBean(DownLoadTask.class);
+        source = context.getBean(SourceRegistry.class).get("default");
+    }
+
+    /**
+     * 每轮换一批新文件名, 上一轮的文件从服务器删除
+     */
+    @Setup(Level.Invocation)
+    public void publish() {
+        for (int i = 0; i < files; i++) {
+            if (round > 0) {
+                fileSystem.delete(OUTGOING + "/" + name(round - 1, i));
+            }
+            FileEntry entry = new FileEntry(OUTGOING + "/" + name(round, i));
+            entry.setContents(payload);
+            fileSystem.add(entry);
+        }
+        round++;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        server.stop();
+        FileSystemUtils.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public void cycle() {
+        downLoadTask.download(source);
+    }
+
+    private static String name(int round, int i) {
+        return String.format("ftpc270_%04d_%06d.gz", round, i);
+    }
+}
@@ -0,0 +1,72 @@
+package com.asiainfo.ftp01.benchmark;
+
+import com.asiainfo.ftp01.codec.Codecs;
+import com.asiainfo.ftp01.utils.GZipUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description GZipUtils压缩/解压在不同缓冲区和文件大小下的吞吐, 以及多核gzip压缩
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GZipBenchmark {
+
+    @Param({"8192", "102400", "262144"})
+    private int bufferSize;
+
+    @Param({"65536", "1048576", "16777216"})
+    private int fileSize;
+
+    private byte[] raw;
+
+    private byte[] compressed;
+
+    @Setup
+    public void setup() throws Exception {
+        raw = BenchmarkData.records(fileSize);
+        compressed = GZipUtils.compress(raw);
+    }
+
+    @Benchmark
+    public long compress() throws Exception {
+        BenchmarkData.CountingSink sink = new BenchmarkData.CountingSink();
+        GZipUtils.compress(new ByteArrayInputStream(raw), sink, bufferSize);
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long decompress() throws Exception {
+        BenchmarkData.CountingSink sink = new BenchmarkData.CountingSink();
+        GZipUtils.decompress(new ByteArrayInputStream(compressed), sink, bufferSize);
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long parallelCompress() throws Exception {
+        BenchmarkData.CountingSink sink = new BenchmarkData.CountingSink();
+        try (OutputStream os = Codecs.PARALLEL_GZIP.compress(sink)) {
+            os.write(raw);
+        }
+        return sink.getCount();
+    }
+}
@@ -0,0 +1,105 @@
+package com.asiainfo.ftp01.benchmark;
+
+import com.asiainfo.ftp01.index.SyncIndex;
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.SyncStatus;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPFileEntryParser;
+import org.apache.commons.net.ftp.FTPListParseEngine;
+import org.apache.commons.net.ftp.parser.MLSxEntryParser;
+import org.apache.commons.net.ftp.parser.UnixFTPEntryParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 大目录列表的解析(LIST/MLSD)以及列表与同步索引的比对
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingBenchmark {
+
+    @Param({"10000", "100000"})
+    private int entries;
+
+    private byte[] unixListing;
+
+    private byte[] mlsdListing;
+
+    private List<FileInfo> files;
+
+    private File indexFile;
+
+    private SyncIndex syncIndex;
+
+    @Setup
+    public void setup() throws Exception {
+        unixListing = BenchmarkData.unixListing(entries);
+        mlsdListing = BenchmarkData.mlsdListing(entries);
+        files = new ArrayList<>(entries);
+        for (FTPFile ftpFile : parse(new MLSxEntryParser(), mlsdListing)) {
+            files.add(new FileInfo("outgoing", ftpFile.getName(), ftpFile.getSize(), ftpFile.getTimestamp().getTimeInMillis()));
+        }
+        indexFile = Files.createTempFile("sync-index", ".log").toFile();
+        syncIndex = new SyncIndex(indexFile);
+        // 一半文件已同步
+        for (int i = 0; i < files.size(); i += 2) {
+            syncIndex.mark(files.get(i), SyncStatus.DOWNLOADED);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        syncIndex.close();
+        indexFile.delete();
+    }
+
+    @Benchmark
+    public int parseList() throws Exception {
+        return parse(new UnixFTPEntryParser(), unixListing).length;
+    }
+
+    @Benchmark
+    public int parseMlsd() throws Exception {
+        return parse(new MLSxEntryParser(), mlsdListing).length;
+    }
+
+    @Benchmark
+    public int diffAgainstIndex() {
+        int pending = 0;
+        for (FileInfo fileInfo : files) {
+            if (!syncIndex.isSynced(fileInfo)) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    private static FTPFile[] parse(FTPFileEntryParser parser, byte[] listing) throws Exception {
+        FTPListParseEngine engine = new FTPListParseEngine(parser);
+        engine.readServerList(new ByteArrayInputStream(listing), "UTF-8");
+        return engine.getFiles();
+    }
+}
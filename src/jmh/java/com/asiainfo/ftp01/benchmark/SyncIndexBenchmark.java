@@ -0,0 +1,150 @@
+package com.asiainfo.ftp01.benchmark;
+
+import com.asiainfo.ftp01.index.SyncIndex;
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.SyncStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 同步索引的加载耗时、查询耗时和常驻内存: catalog为当前的FileCatalog实现,
+ * map为改造前每条记录一个路径字符串和Entry对象的HashMap. 常驻内存在setup中GC后统计, 输出到标准输出;
+ * 百万级条目需要较大的堆, 如 -Djmh.args="SyncIndex -jvmArgs -Xmx4g"
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SyncIndexBenchmark {
+
+    private static final int PROBES = 4096;
+
+    @Param({"200000", "2000000"})
+    private int entries;
+
+    @Param({"catalog", "map"})
+    private String impl;
+
+    private File indexFile;
+
+    private FileInfo[] probes;
+
+    private SyncIndex syncIndex;
+
+    private Map<String, SyncIndex.Entry> map;
+
+    @Setup
+    public void setup() throws IOException {
+        indexFile = Files.createTempFile("sync-index", ".log").toFile();
+        // 1000个设备目录, 文件名与目录名都有重复的前缀, 与实际采集目录相似
+        Random random = new Random(entries);
+        probes = new FileInfo[PROBES];
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(indexFile), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < entries; i++) {
+                FileInfo fileInfo = fileInfo(i);
+                writer.write(SyncStatus.DOWNLOADED.name() + "\t" + fileInfo.getSize() + "\t" + fileInfo.getTimestamp() + "\t" + fileInfo.getRemoteFile() + "\n");
+            }
+        }
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = fileInfo(random.nextInt(entries));
+        }
+        long before = usedHeap();
+        load();
+        long retained = usedHeap() - before;
+        System.out.println("同步索引常驻内存(" + impl + "," + entries + "条): " + retained / (1024 * 1024) + "MB, 每条" + retained / entries + "字节");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (syncIndex != null) {
+            syncIndex.close();
+        }
+        indexFile.delete();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int load() throws IOException {
+        if (syncIndex != null) {
+            syncIndex.close();
+            syncIndex = null;
+        }
+        map = null;
+        if ("catalog".equals(impl)) {
+            syncIndex = new SyncIndex(indexFile);
+            return syncIndex.size();
+        }
+        map = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                map.put(fields[3], new SyncIndex.Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), SyncStatus.valueOf(fields[0])));
+            }
+        }
+        return map.size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(PROBES)
+    public int lookup() {
+        int synced = 0;
+        for (FileInfo probe : probes) {
+            if ("catalog".equals(impl) ? syncIndex.isSynced(probe) : isSynced(probe)) {
+                synced++;
+            }
+        }
+        return synced;
+    }
+
+    private boolean isSynced(FileInfo fileInfo) {
+        SyncIndex.Entry entry = map.get(fileInfo.getRemoteFile());
+        return entry != null && entry.getStatus() == SyncStatus.DOWNLOADED && entry.getSize() == fileInfo.getSize()
+                && entry.getTimestamp() == fileInfo.getTimestamp();
+    }
+
+    private static FileInfo fileInfo(int i) {
+        String directory = "outgoing/device_" + String.format("%04d", i % 1000);
+        return new FileInfo(directory, "ftpc270_" + String.format("%08d", i) + ".txt.gz", 10000 + i * 7L, 1548813600000L + i * 1000L);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,43 @@
+package com.asiainfo.ftp01.codec;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description bzip2格式. 编解码器逐字节读写, 用默认大小的缓冲流包装, 调用方传入的文件流和socket流不带缓冲
+ */
+public class Bzip2Codec implements CompressionCodec {
+
+    @Override
+    public String getName() {
+        return "bzip2";
+    }
+
+    @Override
+    public String getExtension() {
+        return ".bz2";
+    }
+
+    @Override
+    public boolean matches(byte[] header, int length) {
+        return BZip2CompressorInputStream.matches(header, length);
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) throws IOException {
+        return new BZip2CompressorInputStream(new BufferedInputStream(in), true);
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException {
+        return new BZip2CompressorOutputStream(new BufferedOutputStream(out));
+    }
+}
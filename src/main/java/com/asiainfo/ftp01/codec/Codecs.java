@@ -0,0 +1,224 @@
+package com.asiainfo.ftp01.codec;
+
+import com.asiainfo.ftp01.utils.BufferPool;
+import com.asiainfo.ftp01.utils.NioFiles;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 压缩格式注册表: 按名称、文件后缀或文件头选择压缩格式, 以及文件解压和重新压缩
+ */
+@Slf4j
+public class Codecs {
+
+    /**
+     * 识别文件头需要读取的字节数
+     */
+    private static final int HEADER_SIZE = 16;
+
+    public static final CompressionCodec GZIP = new GzipCodec();
+    public static final CompressionCodec PARALLEL_GZIP = new ParallelGzipCodec();
+    public static final CompressionCodec BZIP2 = new Bzip2Codec();
+    public static final CompressionCodec XZ = new XzCodec();
+    public static final CompressionCodec LZ4 = new Lz4Codec();
+    public static final CompressionCodec ZSTD = new ZstdCodec();
+
+    /**
+     * 按识别优先级排列; pgzip与gzip格式相同, 只用于压缩, 不参与识别
+     */
+    private static final List<CompressionCodec> CODECS = Collections.unmodifiableList(Arrays.asList(GZIP, BZIP2, XZ, LZ4, ZSTD));
+
+    private Codecs() {
+    }
+
+    /**
+     * 按名称获取压缩格式
+     *
+     * @param name 格式名称, 如gzip、pgzip、bzip2、xz、lz4、zstd
+     * @return 压缩格式; 名称为空时返回null
+     */
+    public static CompressionCodec forName(String name) {
+        if (StringUtils.isBlank(name)) {
+            return null;
+        }
+        List<CompressionCodec> all = new ArrayList<>(CODECS);
+        all.add(PARALLEL_GZIP);
+        for (CompressionCodec codec : all) {
+            if (codec.getName().equalsIgnoreCase(name.trim())) {
+                if (!codec.isAvailable()) {
+                    throw new IllegalStateException("压缩格式" + name + "依赖的类库不存在");
+                }
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("不支持的压缩格式:" + name);
+    }
+
+    /**
+     * 按名称获取用于压缩的格式
+     *
+     * @param name 格式名称
+     * @return 压缩格式; 名称为空时返回null
+     */
+    public static CompressionCodec forCompression(String name) {
+        CompressionCodec codec = forName(name);
+        if (codec != null && !codec.canCompress()) {
+            throw new IllegalArgumentException("压缩格式" + name + "只支持解压");
+        }
+        return codec;
+    }
+
+    /**
+     * 按文件后缀获取压缩格式
+     *
+     * @param fileName 文件名
+     * @return 压缩格式, 不是压缩文件或运行环境不支持时返回null
+     */
+    public static CompressionCodec forFileName(String fileName) {
+        for (CompressionCodec codec : CODECS) {
+            if (fileName.endsWith(codec.getExtension()) && codec.isAvailable()) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按文件头识别压缩格式, 识别不出时按文件后缀
+     *
+     * @param file 文件
+     * @return 压缩格式, 不是压缩文件时返回null
+     * @throws IOException
+     */
+    public static CompressionCodec detect(File file) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int length;
+        try (InputStream in = NioFiles.newInputStream(file)) {
+            length = readFully(in, header);
+        }
+        CompressionCodec codec = detect(header, length);
+        return codec != null ? codec : forFileName(file.getName());
+    }
+
+    /**
+     * 按文件头识别压缩格式
+     *
+     * @param header 文件开头的字节
+     * @param length 有效字节数
+     * @return 压缩格式, 识别不出时返回null
+     */
+    public static CompressionCodec detect(byte[] header, int length) {
+        for (CompressionCodec codec : CODECS) {
+            if (codec.matches(header, length) && codec.isAvailable()) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 去掉文件名中的压缩后缀
+     *
+     * @param fileName 文件名
+     * @param codec    压缩格式
+     * @return
+     */
+    public static String stripExtension(String fileName, CompressionCodec codec) {
+        if (codec != null && fileName.endsWith(codec.getExtension())) {
+            return fileName.substring(0, fileName.length() - codec.getExtension().length());
+        }
+        return fileName;
+    }
+
+    /**
+     * 解压文件到指定目录, 压缩格式按文件头识别
+     *
+     * @param file   压缩文件
+     * @param dePath 解压路径
+     * @param delete 是否删除原始文件
+     * @return 解压后的文件
+     * @throws IOException 不是可识别的压缩文件或解压失败
+     */
+    public static File decompress(File file, String dePath, boolean delete) throws IOException {
+        CompressionCodec codec = detect(file);
+        if (codec == null) {
+            throw new IOException("无法识别的压缩格式:" + file.getPath());
+        }
+        File target = new File(dePath + File.separator + stripExtension(file.getName(), codec));
+        // 先解压到暂存文件, 完整后再改名, 解压路径中不会出现不完整的文件
+        File temp = NioFiles.staging(target);
+        try (InputStream in = codec.decompress(NioFiles.newInputStream(file));
+             OutputStream os = NioFiles.newOutputStream(temp)) {
+            copy(in, os);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        NioFiles.commit(temp, target);
+        if (delete) {
+            file.delete();
+        }
+        return target;
+    }
+
+    /**
+     * 用另一种压缩格式重新压缩文件, 生成的文件与原文件在同一目录, 成功后删除原文件
+     *
+     * @param file   压缩文件
+     * @param target 目标压缩格式
+     * @return 重新压缩后的文件; 原文件已是目标格式时返回原文件
+     * @throws IOException
+     */
+    public static File recompress(File file, CompressionCodec target) throws IOException {
+        CompressionCodec source = detect(file);
+        if (source == null || source.getExtension().equals(target.getExtension())) {
+            return file;
+        }
+        File result = new File(file.getParentFile(), stripExtension(file.getName(), source) + target.getExtension());
+        File temp = NioFiles.staging(result);
+        long start = System.currentTimeMillis();
+        try (InputStream in = source.decompress(NioFiles.newInputStream(file));
+             OutputStream os = target.compress(NioFiles.newOutputStream(temp))) {
+            copy(in, os);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        NioFiles.commit(temp, result);
+        log.info("重新压缩文件:{} -> {},大小:{} -> {},耗时:{}ms", file.getName(), result.getName(), file.length(), result.length(),
+                System.currentTimeMillis() - start);
+        file.delete();
+        return result;
+    }
+
+    private static void copy(InputStream in, OutputStream os) throws IOException {
+        byte[] buffer = BufferPool.CODEC.local();
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            os.write(buffer, 0, count);
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int n = in.read(buffer, total, buffer.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+}
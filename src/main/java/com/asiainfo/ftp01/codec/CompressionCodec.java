@@ -0,0 +1,64 @@
+package com.asiainfo.ftp01.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 压缩格式
+ */
+public interface CompressionCodec {
+
+    /**
+     * 格式名称, 用于配置
+     */
+    String getName();
+
+    /**
+     * 文件后缀, 包含点号
+     */
+    String getExtension();
+
+    /**
+     * 根据文件头判断是否为该格式
+     *
+     * @param header 文件开头的字节
+     * @param length 有效字节数
+     * @return
+     */
+    boolean matches(byte[] header, int length);
+
+    /**
+     * 运行环境是否支持该格式(部分格式依赖可选的类库)
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * 是否可用于压缩, 不可用的格式只用于解压
+     */
+    default boolean canCompress() {
+        return isAvailable();
+    }
+
+    /**
+     * 包装解压输入流
+     *
+     * @param in 压缩数据
+     * @return 解压后的数据
+     * @throws IOException
+     */
+    InputStream decompress(InputStream in) throws IOException;
+
+    /**
+     * 包装压缩输出流, 关闭返回的流时写出结尾并关闭out
+     *
+     * @param out 压缩数据的输出
+     * @return 接收原始数据的输出流
+     * @throws IOException
+     */
+    OutputStream compress(OutputStream out) throws IOException;
+}
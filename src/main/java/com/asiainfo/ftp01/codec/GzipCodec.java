@@ -0,0 +1,47 @@
+package com.asiainfo.ftp01.codec;
+
+import com.asiainfo.ftp01.utils.GZipUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description gzip格式, 解压时支持多个gzip成员首尾相接的文件
+ */
+public class GzipCodec implements CompressionCodec {
+
+    /**
+     * Inflater/Deflater的输入输出缓冲区, 每个文件分配一次; 数据拷贝使用调用方的池化缓冲区, 这里不需要很大
+     */
+    private static final int STREAM_BUFFER = 8 * 1024;
+
+    @Override
+    public String getName() {
+        return "gzip";
+    }
+
+    @Override
+    public String getExtension() {
+        return GZipUtils.EXT;
+    }
+
+    @Override
+    public boolean matches(byte[] header, int length) {
+        return length >= 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b;
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) throws IOException {
+        return new GZIPInputStream(in, STREAM_BUFFER);
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, STREAM_BUFFER);
+    }
+}
@@ -0,0 +1,46 @@
+package com.asiainfo.ftp01.codec;
+
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description lz4 frame格式. commons-compress的纯java压缩实现较慢, 且写满4MB数据块时对部分数据会出错, 只用于解压:
+ * canCompress为false, Codecs.forCompression拒绝该格式, 采集源的归档格式在启动时校验
+ */
+public class Lz4Codec implements CompressionCodec {
+
+    @Override
+    public String getName() {
+        return "lz4";
+    }
+
+    @Override
+    public String getExtension() {
+        return ".lz4";
+    }
+
+    @Override
+    public boolean matches(byte[] header, int length) {
+        return FramedLZ4CompressorInputStream.matches(header, length);
+    }
+
+    @Override
+    public boolean canCompress() {
+        return false;
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) throws IOException {
+        return new FramedLZ4CompressorInputStream(in, true);
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException {
+        throw new IOException("压缩格式lz4只支持解压");
+    }
+}
@@ -0,0 +1,52 @@
+package com.asiainfo.ftp01.codec;
+
+import com.asiainfo.ftp01.utils.BufferPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 类似pigz的多核gzip压缩: 输入按块切分后并行压缩为独立的gzip成员, 按顺序拼接输出,
+ * 结果是标准的多成员gzip文件, gzip/GZIPInputStream均可直接解压
+ */
+public class ParallelGzipCodec extends GzipCodec {
+
+    /**
+     * 每个gzip成员的原始数据大小
+     */
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 数据块和压缩结果的数组池, 由所有并行压缩流共享
+     */
+    private static final BufferPool BLOCKS = new BufferPool(BLOCK_SIZE, THREADS * 4);
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger threadId = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "pgzip-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @Override
+    public String getName() {
+        return "pgzip";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException {
+        return new ParallelGzipOutputStream(out, EXECUTOR, BLOCKS, THREADS * 2);
+    }
+}
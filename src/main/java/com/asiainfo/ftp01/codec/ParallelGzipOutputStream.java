@@ -0,0 +1,201 @@
+package com.asiainfo.ftp01.codec;
+
+import com.asiainfo.ftp01.utils.BufferPool;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 把写入的数据按块并行压缩为gzip成员并按写入顺序输出, 同时在压缩中的块数有上限.
+ * 数据块和压缩结果取自数组池, 写出后归还; 压缩线程复用各自的Deflater, 每个块不再新建压缩器和缓冲区
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    /**
+     * gzip成员头: 魔数、deflate、无标志、无修改时间、无额外标志、操作系统未知
+     */
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static final int TRAILER_SIZE = 8;
+
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    private static final ThreadLocal<CRC32> CRCS = ThreadLocal.withInitial(CRC32::new);
+
+    private final OutputStream out;
+
+    private final ExecutorService executor;
+
+    private final BufferPool blocks;
+
+    private final int blockSize;
+
+    private final int maxInFlight;
+
+    private final Deque<Future<Member>> inFlight = new ArrayDeque<>();
+
+    private byte[] block;
+
+    private int count;
+
+    private boolean written;
+
+    private boolean closed;
+
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int blockSize, int maxInFlight) {
+        this(out, executor, new BufferPool(blockSize, Math.max(1, maxInFlight) * 2 + 1), maxInFlight);
+    }
+
+    /**
+     * @param blocks 数据块和压缩结果使用的数组池, 数组大小即块大小
+     */
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, BufferPool blocks, int maxInFlight) {
+        this.out = out;
+        this.executor = executor;
+        this.blocks = blocks;
+        this.blockSize = blocks.getBufferSize();
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.block = blocks.acquire();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[count++] = (byte) b;
+        if (count == blockSize) {
+            submit();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize) {
+                submit();
+            }
+        }
+    }
+
+    /**
+     * 等待已提交的块全部压缩并写出, 未满的块不会被提交, 以免产生过小的gzip成员
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!inFlight.isEmpty()) {
+            drainOne();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // 没有任何数据时也输出一个空的gzip成员, 保证结果是合法的gzip文件
+            if (count > 0 || !written) {
+                submit();
+            }
+            flush();
+            blocks.release(block);
+            block = null;
+        } finally {
+            out.close();
+        }
+    }
+
+    private void submit() throws IOException {
+        final byte[] data = block;
+        final int length = count;
+        inFlight.addLast(executor.submit(() -> gzip(data, length)));
+        written = true;
+        block = blocks.acquire();
+        count = 0;
+        while (inFlight.size() > maxInFlight) {
+            drainOne();
+        }
+    }
+
+    private void drainOne() throws IOException {
+        try {
+            Member member = inFlight.removeFirst().get();
+            out.write(member.data, 0, member.length);
+            blocks.release(member.data);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("并行压缩被中断");
+        } catch (ExecutionException e) {
+            throw new IOException("并行压缩失败", e.getCause());
+        }
+    }
+
+    /**
+     * 把一个数据块压缩为完整的gzip成员, 数据块随后归还数组池
+     */
+    private Member gzip(byte[] data, int length) {
+        Deflater deflater = DEFLATERS.get();
+        CRC32 crc = CRCS.get();
+        deflater.reset();
+        crc.reset();
+        crc.update(data, 0, length);
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+
+        byte[] result = blocks.acquire();
+        System.arraycopy(HEADER, 0, result, 0, HEADER.length);
+        int size = HEADER.length;
+        while (!deflater.finished()) {
+            if (size == result.length) {
+                // 无法压缩的数据略大于原始数据, 扩容后的数组不再归还数组池
+                result = Arrays.copyOf(result, result.length + result.length / 8 + 64);
+            }
+            size += deflater.deflate(result, size, result.length - size);
+        }
+        blocks.release(data);
+        if (size + TRAILER_SIZE > result.length) {
+            result = Arrays.copyOf(result, size + TRAILER_SIZE);
+        }
+        writeInt(result, size, (int) crc.getValue());
+        writeInt(result, size + 4, length);
+        return new Member(result, size + TRAILER_SIZE);
+    }
+
+    private static void writeInt(byte[] b, int off, int value) {
+        b[off] = (byte) value;
+        b[off + 1] = (byte) (value >>> 8);
+        b[off + 2] = (byte) (value >>> 16);
+        b[off + 3] = (byte) (value >>> 24);
+    }
+
+    /**
+     * 压缩后的gzip成员, data的前length字节有效
+     */
+    private static final class Member {
+
+        private final byte[] data;
+
+        private final int length;
+
+        private Member(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
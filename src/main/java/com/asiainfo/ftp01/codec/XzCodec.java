@@ -0,0 +1,49 @@
+package com.asiainfo.ftp01.codec;
+
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description xz格式, 依赖org.tukaani:xz. 解码器按字节读取, 用默认大小的缓冲流包装
+ */
+public class XzCodec implements CompressionCodec {
+
+    @Override
+    public String getName() {
+        return "xz";
+    }
+
+    @Override
+    public String getExtension() {
+        return ".xz";
+    }
+
+    @Override
+    public boolean matches(byte[] header, int length) {
+        return XZUtils.matches(header, length);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return XZUtils.isXZCompressionAvailable();
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) throws IOException {
+        return new XZCompressorInputStream(new BufferedInputStream(in), true);
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException {
+        return new XZCompressorOutputStream(new BufferedOutputStream(out));
+    }
+}
@@ -0,0 +1,47 @@
+package com.asiainfo.ftp01.codec;
+
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description zstd格式, 依赖可选的com.github.luben:zstd-jni, 类路径中没有时不可用
+ */
+public class ZstdCodec implements CompressionCodec {
+
+    @Override
+    public String getName() {
+        return "zstd";
+    }
+
+    @Override
+    public String getExtension() {
+        return ".zst";
+    }
+
+    @Override
+    public boolean matches(byte[] header, int length) {
+        return ZstdUtils.matches(header, length);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return ZstdUtils.isZstdCompressionAvailable();
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) throws IOException {
+        return new ZstdCompressorInputStream(in);
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException {
+        return new ZstdCompressorOutputStream(out);
+    }
+}
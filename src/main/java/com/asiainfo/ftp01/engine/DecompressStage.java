@@ -0,0 +1,190 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.StageStats;
+import com.asiainfo.ftp01.source.SourceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 异步解压阶段: 下载线程把下载完成的文件提交到有界队列, 由按CPU核数配置的工作线程解压.
+ * 队列已满时提交方阻塞, 解压跟不上时下载随之放慢; 多个采集源平分名额, 文件多的采集源不会占满队列
+ */
+@Slf4j
+@Component
+public class DecompressStage {
+
+    @Autowired
+    private FtpInfo ftpInfo;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * 排队+处理中的任务名额, 用于反压
+     */
+    private Semaphore slots;
+
+    private int workers;
+    private int capacity;
+
+    private final Object idleLock = new Object();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong processNanos = new AtomicLong();
+    private final AtomicLong maxProcessNanos = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        workers = ftpInfo.getDecompressThreads() > 0 ? ftpInfo.getDecompressThreads() : Runtime.getRuntime().availableProcessors();
+        capacity = Math.max(1, ftpInfo.getDecompressQueueCapacity());
+        slots = new Semaphore(workers + capacity);
+        AtomicInteger threadId = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "decompress-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.bindStage("decompress", this::stats);
+        log.info("解压阶段启动,工作线程数:{},队列容量:{}", workers, capacity);
+    }
+
+    /**
+     * 为各采集源分配名额: 每个采集源最多占用总名额的1/n
+     *
+     * @param sources 全部采集源
+     */
+    public void allocate(List<SourceContext> sources) {
+        int share = Math.max(1, (workers + capacity) / Math.max(1, sources.size()));
+        for (SourceContext source : sources) {
+            source.setStageSlots(new Semaphore(share));
+        }
+    }
+
+    /**
+     * 提交解压任务, 采集源名额或队列已满时阻塞直到有空位
+     *
+     * @param source 文件所属采集源
+     * @param task   解压任务
+     * @throws InterruptedException
+     */
+    public void submit(SourceContext source, StageTask task) throws InterruptedException {
+        Semaphore sourceSlots = source.getStageSlots();
+        long blockStart = System.nanoTime();
+        if (sourceSlots != null) {
+            sourceSlots.acquire();
+        }
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            if (sourceSlots != null) {
+                sourceSlots.release();
+            }
+            throw e;
+        }
+        blockedNanos.addAndGet(System.nanoTime() - blockStart);
+        pending.incrementAndGet();
+        source.getStagePending().incrementAndGet();
+        long enqueued = System.nanoTime();
+        try {
+            executor.execute(() -> execute(task, source, enqueued));
+        } catch (RuntimeException e) {
+            finish(source);
+            throw e;
+        }
+    }
+
+    /**
+     * 等待某个采集源已提交的任务全部处理完成, 不等待其他采集源的任务
+     *
+     * @param source 采集源
+     * @throws InterruptedException
+     */
+    public void awaitIdle(SourceContext source) throws InterruptedException {
+        synchronized (idleLock) {
+            while (source.getStagePending().get() > 0) {
+                idleLock.wait(1000);
+            }
+        }
+    }
+
+    /**
+     * 阶段统计信息
+     */
+    public StageStats stats() {
+        StageStats stats = new StageStats();
+        stats.setName("decompress");
+        stats.setWorkers(workers);
+        stats.setCapacity(capacity);
+        stats.setQueueDepth(executor.getQueue().size());
+        stats.setRunning(running.get());
+        long done = completed.get() + failed.get();
+        stats.setCompleted(completed.get());
+        stats.setFailed(failed.get());
+        stats.setAvgWaitMillis(done == 0 ? 0 : waitNanos.get() / 1e6 / done);
+        stats.setAvgProcessMillis(done == 0 ? 0 : processNanos.get() / 1e6 / done);
+        stats.setMaxProcessMillis(maxProcessNanos.get() / 1e6);
+        stats.setBlockedMillis(TimeUnit.NANOSECONDS.toMillis(blockedNanos.get()));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.warn("解压阶段关闭超时,未完成任务数:{}", pending.get());
+        }
+    }
+
+    private void execute(StageTask task, SourceContext source, long enqueued) {
+        long start = System.nanoTime();
+        waitNanos.addAndGet(start - enqueued);
+        running.incrementAndGet();
+        try {
+            task.run();
+            completed.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.error("解压任务失败,采集源:" + source.getName(), e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            processNanos.addAndGet(elapsed);
+            maxProcessNanos.accumulateAndGet(elapsed, Math::max);
+            running.decrementAndGet();
+            finish(source);
+        }
+    }
+
+    private void finish(SourceContext source) {
+        if (source.getStageSlots() != null) {
+            source.getStageSlots().release();
+        }
+        slots.release();
+        int sourcePending = source.getStagePending().decrementAndGet();
+        if (pending.decrementAndGet() == 0 || sourcePending == 0) {
+            synchronized (idleLock) {
+                idleLock.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.codec.Codecs;
+import com.asiainfo.ftp01.codec.CompressionCodec;
+import com.asiainfo.ftp01.index.DedupIndex;
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.DownloadReport;
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.pool.FtpClientPool;
+import com.asiainfo.ftp01.pool.PoolTimeoutException;
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.throttle.TransferThrottle;
+import com.asiainfo.ftp01.utils.FtpUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 多会话并发下载引擎, 每个工作线程从连接池借用一个ftp会话, 从共享队列中领取文件下载
+ */
+@Slf4j
+@Component
+public class DownloadEngine {
+
+    @Autowired
+    private FtpUtils ftpUtils;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired
+    private TransferThrottle throttle;
+
+    @Autowired
+    private RetryPolicy retryPolicy;
+
+    @Autowired
+    private TransferExecutors executors;
+
+    /**
+     * 并发下载文件列表, 会话数受采集源自身的并发数和连接池限制
+     *
+     * @param source  采集源
+     * @param files   待下载文件
+     * @param handler 单个文件下载成功后的处理
+     * @return 本次下载统计
+     */
+    public DownloadReport download(SourceContext source, List<FileInfo> files, FileHandler handler) {
+        if (files.isEmpty()) {
+            return new DownloadReport();
+        }
+        return download(source, FileFeed.of(files), sessions(source.getFtpInfo(), files.size()), handler);
+    }
+
+    /**
+     * 边列表边下载: 从文件队列领取文件, 直到列表结束且队列为空
+     *
+     * @param source   采集源
+     * @param feed     文件队列
+     * @param sessions 下载会话数
+     * @param handler  单个文件下载成功后的处理
+     * @return 本次下载统计
+     */
+    public DownloadReport download(SourceContext source, FileFeed feed, int sessions, FileHandler handler) {
+        DownloadReport report = new DownloadReport();
+        report.setSessions(sessions);
+        log.info("采集源:{},开始并发下载,会话数:{}", source.getName(), sessions);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        // 本次下载中各文件的下载次数
+        Map<String, Integer> attempts = new ConcurrentHashMap<>();
+        AtomicInteger workers = new AtomicInteger(sessions);
+        AtomicLong bytes = new AtomicLong();
+        long start = System.currentTimeMillis();
+
+        ExecutorService executor = executors.newExecutor("download-" + source.getName() + "-", sessions);
+        for (int i = 0; i < sessions; i++) {
+            executor.execute(() -> {
+                try {
+                    work(source, feed, handler, attempts, succeeded, failed, duplicates, bytes);
+                } finally {
+                    // 最后一个下载线程退出后不再接收文件, 避免列表线程在满队列上一直等待
+                    if (workers.decrementAndGet() == 0) {
+                        feed.abort();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("采集源:{},下载进行中,已领取文件数:{},成功:{},失败:{}", source.getName(), feed.getOffered(), succeeded.get(), failed.get());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            feed.abort();
+            Thread.currentThread().interrupt();
+        }
+
+        report.setTotal((int) feed.getOffered());
+        report.setSucceeded(succeeded.get());
+        // 会话建立失败时未领取的文件同样计为失败
+        report.setFailed(failed.get() + (int) feed.getDropped());
+        report.setDuplicates(duplicates.get());
+        report.setBytes(bytes.get());
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("采集源:{},本次下载完成,文件数:{},成功:{},失败:{},重复:{},字节数:{},耗时:{}ms,吞吐:{} MB/s,{} 文件/s",
+                source.getName(), report.getTotal(), report.getSucceeded(), report.getFailed(), report.getDuplicates(), report.getBytes(), report.getElapsedMillis(),
+                String.format("%.2f", report.getMegabytesPerSecond()), String.format("%.2f", report.getFilesPerSecond()));
+        log.info("采集源:{},ftp连接池统计:{}", source.getName(), source.getPool().stats());
+        return report;
+    }
+
+    /**
+     * 实际使用的会话数: 不超过配置并发数、服务器会话上限以及文件数
+     */
+    private int sessions(FtpInfo ftpInfo, int fileCount) {
+        int sessions = Math.min(ftpInfo.getConcurrency(), ftpInfo.getMaxSessions());
+        return Math.max(1, Math.min(sessions, fileCount));
+    }
+
+    /**
+     * 下载单个文件, 中断的下载下次从断点续传; 开启边下载边解压时压缩文件直接解压, 返回解压后的文件.
+     * 开启去重时优先由服务器计算摘要, 内容已处理过则不下载; 否则下载时计算摘要, 重复时丢弃暂存文件, 不改名为正式文件
+     *
+     * @return 本地文件, 内容重复时返回null
+     */
+    private File transfer(SourceContext source, FTPClient client, FileInfo fileInfo, AtomicLong bytes) throws IOException {
+        FtpInfo ftpInfo = source.getFtpInfo();
+        // 使用绝对路径下载, 不再逐个文件切换目录和重新列表
+        String remoteFile = source.getPool().resolve(fileInfo.getRemoteFile());
+        MessageDigest digest = null;
+        if (source.getDedupIndex() != null) {
+            digest = newDigest(ftpInfo.getDedupAlgorithm());
+            byte[] remoteDigest = remoteDigest(source, client, remoteFile, digest);
+            if (remoteDigest != null) {
+                if (isDuplicate(source, fileInfo, remoteDigest)) {
+                    return null;
+                }
+                digest = null;
+            }
+        }
+        CompressionCodec codec = Codecs.forFileName(fileInfo.getName());
+        if (ftpInfo.isStreamDecompress() && codec != null) {
+            File rawFile = ftpInfo.isKeepRaw() ? new File(ftpInfo.getLocalPath() + File.separator + fileInfo.getName()) : null;
+            File target = ftpUtils.downloadDecompressed(client, fileInfo, codec, remoteFile, ftpInfo.getCompressPath(), rawFile,
+                    digest, d -> isDuplicate(source, fileInfo, d));
+            bytes.addAndGet(fileInfo.getSize());
+            return target;
+        }
+        File localFile = ftpUtils.downloadResumable(client, fileInfo, remoteFile, ftpInfo.getLocalPath(), digest,
+                d -> isDuplicate(source, fileInfo, d));
+        bytes.addAndGet(localFile == null ? fileInfo.getSize() : localFile.length());
+        return localFile;
+    }
+
+    /**
+     * 由服务器计算文件摘要, 首次使用时探测服务器支持的命令
+     *
+     * @return 摘要, 服务器不支持时返回null
+     */
+    private byte[] remoteDigest(SourceContext source, FTPClient client, String remoteFile, MessageDigest digest) throws IOException {
+        String algorithm = source.getFtpInfo().getDedupAlgorithm();
+        String command = source.getDigestCommand();
+        if (command == null) {
+            command = ftpUtils.digestCommand(client, algorithm);
+            source.setDigestCommand(command);
+            log.info("采集源:{},内容摘要:{}", source.getName(), command.isEmpty() ? "下载时计算" + algorithm : "服务器" + command + "命令计算" + algorithm);
+        }
+        return command.isEmpty() ? null : ftpUtils.remoteDigest(client, command, algorithm, remoteFile, digest.getDigestLength());
+    }
+
+    /**
+     * 记录文件的内容指纹, 并判断是否已处理过同样的内容
+     */
+    private boolean isDuplicate(SourceContext source, FileInfo fileInfo, byte[] digest) {
+        long fingerprint = DedupIndex.fingerprint(digest);
+        fileInfo.setFingerprint(fingerprint);
+        if (source.getDedupIndex().contains(fileInfo.getSize(), fingerprint)) {
+            log.info("采集源:{},文件内容与已处理的文件相同,跳过:{}", source.getName(), fileInfo.getRemoteFile());
+            return true;
+        }
+        return false;
+    }
+
+    private static MessageDigest newDigest(String algorithm) throws IOException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("不支持的摘要算法:" + algorithm, e);
+        }
+    }
+
+    private void work(SourceContext source, FileFeed feed, FileHandler handler, Map<String, Integer> attempts,
+                      AtomicInteger succeeded, AtomicInteger failed, AtomicInteger duplicates, AtomicLong bytes) {
+        FtpClientPool ftpClientPool = source.getPool();
+        FTPClient client = null;
+        FileInfo fileInfo = null;
+        try {
+            while (true) {
+                // 领取到文件后才建立会话; 列表进行中队列暂时为空或列表线程在等待会话时先归还, 会话名额不足(如最大会话数为1)时列表也能继续
+                if (client != null && !feed.isClosed() && (feed.isEmpty() || ftpClientPool.hasWaiters())) {
+                    ftpClientPool.release(client);
+                    client = null;
+                }
+                if ((fileInfo = feed.take()) == null) {
+                    break;
+                }
+                throttle.acquireFile(source);
+                if (client == null || !client.isConnected()) {
+                    ftpClientPool.invalidate(client);
+                    client = null;
+                    boolean listing = !feed.isClosed();
+                    try {
+                        client = ftpClientPool.borrow();
+                    } catch (PoolTimeoutException e) {
+                        if (!listing) {
+                            throw e;
+                        }
+                        // 会话被列表线程占用, 文件退回队列, 下载线程不退出, 否则最后一个下载线程退出后剩余的列表会被丢弃
+                        feed.requeue(fileInfo);
+                        log.info("采集源:{},列表进行中,等待ftp会话超时,稍后重新获取", source.getName());
+                        continue;
+                    }
+                    throttle.bind(source, client);
+                }
+                try {
+                    handler.started(fileInfo);
+                } catch (IOException | RuntimeException e) {
+                    // 本地记录失败(如磁盘已满)与ftp会话无关, 保留会话, 也不按传输失败重试
+                    failed.incrementAndGet();
+                    log.error("记录文件开始下载失败:" + fileInfo, e);
+                    handler.failed(fileInfo, e);
+                    continue;
+                }
+                File localFile;
+                long start = System.nanoTime();
+                try {
+                    localFile = transfer(source, client, fileInfo, bytes);
+                    if (localFile == null) {
+                        duplicates.incrementAndGet();
+                        metrics.deduplicated(source.getName());
+                        handler.duplicate(fileInfo);
+                        continue;
+                    }
+                    metrics.transferred(source.getName(), fileInfo.getSize(), System.nanoTime() - start);
+                } catch (IOException | RuntimeException e) {
+                    // 传输异常后会话状态不确定, 丢弃该会话, 重试时使用另一个会话
+                    ftpClientPool.invalidate(client);
+                    client = null;
+                    int attempt = attempts.merge(fileInfo.getRemoteFile(), 1, Integer::sum);
+                    if (retryPolicy.shouldRetry(e, attempt)) {
+                        long delay = retryPolicy.backoff(attempt);
+                        metrics.retried(source.getName());
+                        log.warn("文件下载失败,{}ms后第{}次重试:{},原因:{}", delay, attempt, fileInfo.getRemoteFile(), e.toString());
+                        feed.retry(fileInfo, delay);
+                        continue;
+                    }
+                    failed.incrementAndGet();
+                    metrics.transferFailed(source.getName());
+                    log.error("文件下载失败,下载次数:" + attempt + "," + fileInfo, e);
+                    handler.failed(fileInfo, e);
+                    continue;
+                }
+                try {
+                    handler.handle(fileInfo, localFile);
+                    succeeded.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    log.error("文件处理失败:" + fileInfo, e);
+                    handler.failed(fileInfo, e);
+                }
+            }
+        } catch (IOException e) {
+            // 会话建立失败时文件退回队列由其他会话处理
+            feed.requeue(fileInfo);
+            log.error("获取ftp下载会话失败,采集源:" + source.getName(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ftpClientPool.release(client);
+        }
+    }
+}
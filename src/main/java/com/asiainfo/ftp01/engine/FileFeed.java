@@ -0,0 +1,201 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.model.FileInfo;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 列表与下载之间的有界文件队列: 列表线程放入, 下载线程取出; 队列满时列表线程等待, 内存占用与目录大小无关
+ */
+public class FileFeed implements FileSink {
+
+    private final BlockingQueue<FileInfo> queue;
+
+    /**
+     * 会话建立失败时退回的文件, 优先被其他下载线程领取
+     */
+    private final Queue<FileInfo> returned = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 等待退避结束后重试的文件
+     */
+    private final DelayQueue<Retry> retries = new DelayQueue<>();
+
+    private final AtomicLong offered = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * 列表已结束, 不会再有新文件
+     */
+    private volatile boolean closed;
+
+    /**
+     * 下载线程已全部退出, 剩余及之后放入的文件不再下载
+     */
+    private volatile boolean aborted;
+
+    public FileFeed(int capacity) {
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * 由已知的文件列表构造已结束的队列
+     *
+     * @param files 文件列表
+     * @return 文件队列
+     */
+    public static FileFeed of(List<FileInfo> files) {
+        FileFeed feed = new FileFeed(files.size());
+        feed.queue.addAll(files);
+        feed.offered.set(files.size());
+        feed.close();
+        return feed;
+    }
+
+    /**
+     * 放入一个待下载文件, 队列满时等待
+     *
+     * @return 下载已中止时返回false
+     */
+    @Override
+    public boolean accept(FileInfo fileInfo) throws InterruptedException {
+        while (!aborted) {
+            if (queue.offer(fileInfo, 1, TimeUnit.SECONDS)) {
+                offered.incrementAndGet();
+                return true;
+            }
+        }
+        offered.incrementAndGet();
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 标记列表结束
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * 列表是否已结束
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 当前是否没有可立即领取的文件(不含退避中的重试文件)
+     */
+    public boolean isEmpty() {
+        return queue.isEmpty() && returned.isEmpty();
+    }
+
+    /**
+     * 取出一个待下载文件, 暂时没有文件时等待
+     *
+     * @return 文件; 列表已结束且队列为空, 或下载已中止时返回null
+     * @throws InterruptedException
+     */
+    public FileInfo take() throws InterruptedException {
+        while (!aborted) {
+            FileInfo fileInfo = returned.poll();
+            if (fileInfo == null) {
+                Retry retry = retries.poll();
+                fileInfo = retry == null ? null : retry.fileInfo;
+            }
+            if (fileInfo == null) {
+                fileInfo = queue.poll(100, TimeUnit.MILLISECONDS);
+            }
+            if (fileInfo != null) {
+                return fileInfo;
+            }
+            // 还有等待重试的文件时继续等待
+            if (closed && queue.isEmpty() && returned.isEmpty() && retries.isEmpty()) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 退回已领取但未能下载的文件
+     *
+     * @param fileInfo 文件
+     */
+    public void requeue(FileInfo fileInfo) {
+        returned.add(fileInfo);
+    }
+
+    /**
+     * 退避一段时间后重试文件, 期间下载线程继续下载其他文件
+     *
+     * @param fileInfo    文件
+     * @param delayMillis 退避时间(毫秒)
+     */
+    public void retry(FileInfo fileInfo, long delayMillis) {
+        retries.add(new Retry(fileInfo, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis)));
+    }
+
+    /**
+     * 中止下载: 丢弃队列中剩余的文件, 之后放入的文件同样丢弃
+     */
+    public void abort() {
+        aborted = true;
+        long remaining = 0;
+        while (returned.poll() != null) {
+            remaining++;
+        }
+        while (queue.poll() != null) {
+            remaining++;
+        }
+        remaining += retries.size();
+        retries.clear();
+        dropped.addAndGet(remaining);
+    }
+
+    /**
+     * 放入的文件数(含丢弃的文件)
+     */
+    public long getOffered() {
+        return offered.get();
+    }
+
+    /**
+     * 未下载而丢弃的文件数
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private static class Retry implements Delayed {
+        private final FileInfo fileInfo;
+        private final long dueNanos;
+
+        Retry(FileInfo fileInfo, long dueNanos) {
+            this.fileInfo = fileInfo;
+            this.dueNanos = dueNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((Retry) other).dueNanos);
+        }
+    }
+}
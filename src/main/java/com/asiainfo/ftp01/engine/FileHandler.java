@@ -0,0 +1,50 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.model.FileInfo;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 文件下载完成后的处理回调
+ */
+public interface FileHandler {
+
+    /**
+     * 开始下载文件前调用, 抛出异常时该文件记为失败, 不占用重试次数, 也不丢弃ftp会话
+     *
+     * @param fileInfo ftp文件信息
+     * @throws IOException
+     */
+    default void started(FileInfo fileInfo) throws IOException {
+    }
+
+    /**
+     * 处理已下载到本地的文件
+     *
+     * @param fileInfo  ftp文件信息
+     * @param localFile 本地文件
+     * @throws Exception
+     */
+    void handle(FileInfo fileInfo, File localFile) throws Exception;
+
+    /**
+     * 内容与已处理的文件相同, 未下载或下载后已丢弃
+     *
+     * @param fileInfo ftp文件信息
+     * @throws IOException
+     */
+    default void duplicate(FileInfo fileInfo) throws IOException {
+    }
+
+    /**
+     * 文件下载或处理失败
+     *
+     * @param fileInfo ftp文件信息
+     * @param e        异常, 下载返回失败时为null
+     */
+    default void failed(FileInfo fileInfo, Exception e) {
+    }
+}
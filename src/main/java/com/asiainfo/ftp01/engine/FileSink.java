@@ -0,0 +1,23 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.model.FileInfo;
+
+import java.io.IOException;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 列表过程中逐个接收ftp文件
+ */
+public interface FileSink {
+
+    /**
+     * 接收一个文件, 可以阻塞以限制列表速度
+     *
+     * @param fileInfo 文件信息
+     * @return false表示不再需要更多文件, 列表随之停止
+     * @throws IOException          处理失败, 当前目录计为列表失败
+     * @throws InterruptedException
+     */
+    boolean accept(FileInfo fileInfo) throws IOException, InterruptedException;
+}
@@ -0,0 +1,306 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.utils.BufferPool;
+import com.asiainfo.ftp01.utils.NioFiles;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 输出文件路由: 解压或直接移动到解压路径的文件按文件名、修改时间放入分区目录(如日期/小时/设备),
+ * 下游可以按分区并行入库, 不必扫描一个巨大的目录; 超过切分大小的文件在行边界处切分, 各段由多个线程并行拷贝.
+ * 分区目录和切分文件名只由文件名、修改时间和大小决定, 重新处理同一文件时覆盖上次的结果
+ */
+@Slf4j
+@Component
+public class OutputRouter {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\w+)}");
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final DateTimeFormatter HOUR = DateTimeFormatter.ofPattern("HH");
+
+    @Autowired
+    private FtpInfo ftpInfo;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    private ExecutorService executor;
+
+    private final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        int threads = ftpInfo.getSplitThreads() > 0 ? ftpInfo.getSplitThreads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadId = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "split-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 是否配置了分区目录或切分
+     */
+    public boolean isEnabled(FtpInfo ftpInfo) {
+        return StringUtils.isNotBlank(ftpInfo.getRoutePath()) || ftpInfo.getSplitSize() > 0;
+    }
+
+    /**
+     * ftp文件的输出文件所在的分区目录, 未配置分区时为解压路径
+     *
+     * @param source   采集源
+     * @param fileInfo ftp文件
+     * @return 分区目录
+     */
+    public File directory(SourceContext source, FileInfo fileInfo) {
+        FtpInfo ftpInfo = source.getFtpInfo();
+        File root = new File(ftpInfo.getCompressPath());
+        if (StringUtils.isBlank(ftpInfo.getRoutePath())) {
+            return root;
+        }
+        Matcher name = null;
+        if (StringUtils.isNotBlank(ftpInfo.getRoutePattern())) {
+            name = patterns.computeIfAbsent(ftpInfo.getRoutePattern(), Pattern::compile).matcher(fileInfo.getName());
+            if (!name.find()) {
+                name = null;
+            }
+        }
+        Matcher placeholder = PLACEHOLDER.matcher(ftpInfo.getRoutePath());
+        StringBuffer path = new StringBuffer();
+        while (placeholder.find()) {
+            placeholder.appendReplacement(path, Matcher.quoteReplacement(field(source, fileInfo, name, placeholder.group(1))));
+        }
+        placeholder.appendTail(path);
+        return new File(root, path.toString());
+    }
+
+    /**
+     * 把解压路径下的输出文件移动到分区目录, 超过切分大小时切分
+     *
+     * @param source   采集源
+     * @param fileInfo 对应的ftp文件
+     * @param output   输出文件
+     * @return 路由后的文件, 未配置时为原文件
+     * @throws IOException
+     */
+    public List<File> route(SourceContext source, FileInfo fileInfo, File output) throws IOException {
+        FtpInfo ftpInfo = source.getFtpInfo();
+        if (!isEnabled(ftpInfo) || !output.exists()) {
+            return Collections.singletonList(output);
+        }
+        File directory = directory(source, fileInfo);
+        if (!directory.exists() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("创建分区目录失败:" + directory.getPath());
+        }
+        List<File> files;
+        if (ftpInfo.getSplitSize() > 0 && output.length() > ftpInfo.getSplitSize()) {
+            long start = System.currentTimeMillis();
+            files = split(source, fileInfo, output, directory, ftpInfo.getSplitSize());
+            output.delete();
+            log.info("切分文件:{},大小:{},文件数:{},耗时:{}ms", output.getPath(), files.stream().mapToLong(File::length).sum(), files.size(),
+                    System.currentTimeMillis() - start);
+        } else {
+            File target = new File(directory, output.getName());
+            if (!target.getAbsoluteFile().equals(output.getAbsoluteFile())) {
+                NioFiles.move(output, target);
+                NioFiles.forceDirectory(directory);
+            }
+            files = Collections.singletonList(target);
+        }
+        metrics.routed(source.getName(), files.size());
+        log.debug("输出文件:{} -> {}", output.getPath(), directory.getPath());
+        return files;
+    }
+
+    /**
+     * 分区字段: 文件名中的同名分组, 没有时使用修改时间和采集源名称
+     */
+    private String field(SourceContext source, FileInfo fileInfo, Matcher name, String field) {
+        String value = null;
+        if (name != null) {
+            try {
+                value = name.group(field);
+            } catch (IllegalArgumentException e) {
+                // 正则中没有该分组
+            }
+        }
+        if (StringUtils.isBlank(value)) {
+            long timestamp = fileInfo.getTimestamp() > 0 ? fileInfo.getTimestamp() : System.currentTimeMillis();
+            if ("date".equals(field)) {
+                value = DATE.format(Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()));
+            } else if ("hour".equals(field)) {
+                value = HOUR.format(Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()));
+            } else if ("source".equals(field)) {
+                value = source.getName();
+            } else {
+                value = "unknown";
+            }
+        }
+        // 分区字段只作为一级目录名
+        value = value.replace('/', '_').replace('\\', '_');
+        return ".".equals(value) || "..".equals(value) ? "_" : value;
+    }
+
+    /**
+     * 在行边界处切分文件, 各段并行拷贝到暂存文件, 全部完成后再提交. 切分文件数在切分前才确定,
+     * 先记入提交日志再生成, 提交中途进程中断时, 重启后连同已提交的部分一起清理
+     */
+    private List<File> split(SourceContext source, FileInfo fileInfo, File file, File directory, long splitSize) throws IOException {
+        List<Long> bounds = boundaries(file, splitSize);
+        List<File> chunks = new ArrayList<>();
+        for (int i = 0; i < bounds.size() - 1; i++) {
+            chunks.add(new File(directory, chunkName(file.getName(), i + 1)));
+        }
+        source.getJournal().extend(fileInfo, chunks);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            File chunk = chunks.get(i);
+            long from = bounds.get(i);
+            long to = bounds.get(i + 1);
+            futures.add(executor.submit(() -> {
+                copy(file, NioFiles.staging(chunk), from, to - from);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            deleteStaleChunks(directory, file.getName(), chunks.size());
+            for (File chunk : chunks) {
+                NioFiles.commit(NioFiles.staging(chunk), chunk);
+            }
+        } catch (InterruptedException | ExecutionException | IOException e) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            for (File chunk : chunks) {
+                NioFiles.staging(chunk).delete();
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("切分文件被中断:" + file.getPath());
+            }
+            throw e instanceof IOException ? (IOException) e : new IOException("切分文件失败:" + file.getPath(), e.getCause());
+        }
+        return chunks;
+    }
+
+    /**
+     * 删除上次切分留下的、序号超过本次切分文件数的切分文件, 重新处理的文件切分得更少时不会残留旧的数据.
+     * 切分文件序号连续, 遇到第一个不存在的序号即停止
+     */
+    private static void deleteStaleChunks(File directory, String name, int count) throws IOException {
+        for (int index = count + 1; ; index++) {
+            File stale = new File(directory, chunkName(name, index));
+            if (!stale.exists()) {
+                return;
+            }
+            if (!stale.delete()) {
+                throw new IOException("删除旧的切分文件失败:" + stale.getPath());
+            }
+            log.info("删除旧的切分文件:{}", stale.getPath());
+        }
+    }
+
+    /**
+     * 各段的起始位置及文件长度: 每段至少splitSize字节, 延伸到其后的第一个换行符; 没有换行符时到文件末尾
+     */
+    static List<Long> boundaries(File file, long splitSize) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(BufferPool.CODEC.local());
+            long position = splitSize;
+            while (position < length) {
+                long end = length;
+                long scan = position - 1;
+                search:
+                while (scan < length) {
+                    buffer.clear();
+                    int n = channel.read(buffer, scan);
+                    if (n <= 0) {
+                        break;
+                    }
+                    for (int i = 0; i < n; i++) {
+                        if (buffer.get(i) == '\n') {
+                            end = scan + i + 1;
+                            break search;
+                        }
+                    }
+                    scan += n;
+                }
+                if (end >= length) {
+                    break;
+                }
+                bounds.add(end);
+                position = end + splitSize;
+            }
+            bounds.add(length);
+        }
+        return bounds;
+    }
+
+    private static void copy(File file, File target, long position, long count) throws IOException {
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long copied = 0;
+            while (copied < count) {
+                copied += in.transferTo(position + copied, count - copied, out);
+            }
+        }
+    }
+
+    /**
+     * 切分文件名: 在扩展名前加序号, 如a.txt切分为a_0001.txt、a_0002.txt
+     */
+    static String chunkName(String name, int index) {
+        int dot = name.lastIndexOf('.');
+        String suffix = String.format("_%04d", index);
+        return dot > 0 ? name.substring(0, dot) + suffix + name.substring(dot) : name + suffix;
+    }
+}
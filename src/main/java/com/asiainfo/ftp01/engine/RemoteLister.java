@@ -0,0 +1,253 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.PostAction;
+import com.asiainfo.ftp01.pool.FtpClientPool;
+import com.asiainfo.ftp01.pool.PoolTimeoutException;
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.utils.FtpListing;
+import com.asiainfo.ftp01.utils.FtpUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 递归列出ftp目录: 服务器支持时使用MLSD(精确的大小和UTC修改时间), 否则使用LIST;
+ * 子目录由多个会话并行列出, 每个目录只发送一次列表命令. 目录项边读取边分页解析并逐个交给接收方,
+ * 接收方阻塞时列表随之暂停. 列表与下载共用连接池, 等待会话超时的子目录重新排到队尾, 不计为失败
+ */
+@Slf4j
+@Component
+public class RemoteLister {
+
+    /**
+     * 子目录等待会话超时后最多重新排队的次数, 超过后该目录本周期不再列出
+     */
+    private static final int MAX_BORROW_ATTEMPTS = 10;
+
+    @Autowired
+    private FtpUtils ftpUtils;
+
+    @Autowired
+    private TransferExecutors executors;
+
+    /**
+     * 递归列出目录下的所有文件
+     *
+     * @param source     采集源
+     * @param remotePath 相对登录目录(或绝对)的ftp路径, 返回的FileInfo路径与之保持同样的形式
+     * @return 文件列表
+     * @throws IOException 根目录列表失败
+     */
+    public List<FileInfo> list(SourceContext source, String remotePath) throws IOException {
+        Queue<FileInfo> result = new ConcurrentLinkedQueue<>();
+        FtpInfo ftpInfo = source.getFtpInfo();
+        walk(source, remotePath, Math.min(ftpInfo.getConcurrency(), ftpInfo.getMaxSessions()), fileInfo -> result.add(fileInfo));
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * 与下载同时进行列表时使用的列表会话数, 为下载会话留出名额
+     *
+     * @param ftpInfo ftp配置
+     */
+    public static int streamingThreads(FtpInfo ftpInfo) {
+        return Math.max(1, Math.min(ftpInfo.getConcurrency(), ftpInfo.getMaxSessions() - ftpInfo.getConcurrency()));
+    }
+
+    /**
+     * 递归列出目录, 文件逐个交给接收方
+     *
+     * @param source     采集源
+     * @param remotePath 相对登录目录(或绝对)的ftp路径, FileInfo路径与之保持同样的形式
+     * @param threads    并行列表的会话数
+     * @param sink       文件接收方
+     * @return 列出的文件数
+     * @throws IOException 根目录列表失败
+     */
+    public long walk(SourceContext source, String remotePath, int threads, FileSink sink) throws IOException {
+        long start = System.currentTimeMillis();
+        Walk walk = new Walk(source, sink);
+        // 根目录在当前线程列出, 失败直接抛出
+        List<String> directories = walk.listDirectory(remotePath);
+
+        ExecutorService executor = executors.newExecutor("list-" + source.getName() + "-", threads);
+        try {
+            walk.pending.set(directories.size());
+            if (directories.isEmpty()) {
+                walk.done.countDown();
+            }
+            for (String directory : directories) {
+                walk.submit(executor, directory, 1);
+            }
+            walk.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("列出ftp目录被中断", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (walk.requeued.get() > 0) {
+            log.warn("采集源:{},列出子目录时等待会话超时重新排队次数:{}", source.getName(), walk.requeued.get());
+        }
+        if (walk.failedDirectories.get() > 0) {
+            log.error("部分子目录列表失败,目录数:{},首个异常:{}", walk.failedDirectories.get(), walk.firstError.get().getMessage());
+        }
+        log.info("采集源:{},列出ftp目录:{},方式:{},文件数:{},耗时:{}ms", source.getName(), remotePath, Boolean.TRUE.equals(source.getMlsd()) ? "MLSD" : "LIST",
+                walk.files.get(), System.currentTimeMillis() - start);
+        return walk.files.get();
+    }
+
+    private boolean useMlsd(SourceContext source, FTPClient client) throws IOException {
+        Boolean mlsd = source.getMlsd();
+        if (mlsd == null) {
+            String mode = source.getFtpInfo().getListMode();
+            if ("mlsd".equalsIgnoreCase(mode)) {
+                mlsd = true;
+            } else if ("list".equalsIgnoreCase(mode)) {
+                mlsd = false;
+            } else {
+                // MLSD随MLST一起在FEAT中声明
+                mlsd = client.hasFeature("MLST");
+            }
+            source.setMlsd(mlsd);
+            log.info("采集源:{},ftp列表方式:{}", source.getName(), mlsd ? "MLSD" : "LIST");
+        }
+        return mlsd;
+    }
+
+    /**
+     * 一次递归列表的状态
+     */
+    private class Walk {
+        private final SourceContext source;
+        private final FileSink sink;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger failedDirectories = new AtomicInteger();
+        private final AtomicInteger requeued = new AtomicInteger();
+        private final AtomicReference<IOException> firstError = new AtomicReference<>();
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicBoolean stopped = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        Walk(SourceContext source, FileSink sink) {
+            this.source = source;
+            this.sink = sink;
+        }
+
+        private void submit(ExecutorService executor, String directory, int attempt) {
+            executor.execute(() -> {
+                boolean retry = false;
+                try {
+                    if (!stopped.get()) {
+                        List<String> children = listDirectory(directory);
+                        pending.addAndGet(children.size());
+                        for (String child : children) {
+                            submit(executor, child, 1);
+                        }
+                    }
+                } catch (PoolTimeoutException e) {
+                    if (attempt < MAX_BORROW_ATTEMPTS && !stopped.get()) {
+                        // 会话被下载占用, 排到队尾让出线程, 计数不变
+                        requeued.incrementAndGet();
+                        log.warn("列出ftp目录等待会话超时,重新排队:{},第{}次", directory, attempt);
+                        retry = true;
+                    } else {
+                        fail(directory, e);
+                    }
+                } catch (IOException e) {
+                    fail(directory, e);
+                } finally {
+                    if (retry) {
+                        submit(executor, directory, attempt + 1);
+                    } else if (pending.decrementAndGet() == 0) {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        private void fail(String directory, IOException e) {
+            failedDirectories.incrementAndGet();
+            firstError.compareAndSet(null, e);
+            log.error("列出ftp目录失败:" + directory, e);
+        }
+
+        /**
+         * 分页列出单个目录, 文件交给接收方, 返回子目录
+         */
+        private List<String> listDirectory(String directory) throws IOException {
+            FtpClientPool pool = source.getPool();
+            int pageSize = Math.max(1, source.getFtpInfo().getListPageSize());
+            FTPClient client = pool.borrow();
+            List<String> directories = new ArrayList<>();
+            int entries = 0;
+            boolean reusable = false;
+            try {
+                boolean mlsd = useMlsd(source, client);
+                try (FtpListing listing = ftpUtils.openListing(client, pool.resolve(directory), mlsd)) {
+                    List<FTPFile> page;
+                    while (!stopped.get() && !(page = listing.next(pageSize)).isEmpty()) {
+                        entries += page.size();
+                        for (FTPFile ftpFile : page) {
+                            if (ftpFile.isFile()) {
+                                long timestamp = ftpFile.getTimestamp() == null ? 0 : ftpFile.getTimestamp().getTimeInMillis();
+                                files.incrementAndGet();
+                                FileInfo fileInfo = new FileInfo(directory, ftpFile.getName(), ftpFile.getSize(), timestamp);
+                                fileInfo.setCoarseTimestamp(!mlsd);
+                                if (!sink.accept(fileInfo)) {
+                                    stopped.set(true);
+                                    break;
+                                }
+                            } else if (ftpFile.isDirectory() && !isDoneDirectory(directory + "/" + ftpFile.getName())) {
+                                directories.add(directory + "/" + ftpFile.getName());
+                            }
+                        }
+                    }
+                    // 列表中途停止时数据连接被中止, 该会话不再复用
+                    reusable = listing.isFinished();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("列出ftp目录被中断:" + directory, e);
+            } finally {
+                if (reusable) {
+                    pool.release(client);
+                } else {
+                    pool.invalidate(client);
+                }
+            }
+            log.debug("列出ftp目录:{},条目数:{}", directory, entries);
+            return directories;
+        }
+
+        /**
+         * 下载后改名到完成目录时, 完成目录不再列出, 列表开销只与新文件数有关
+         */
+        private boolean isDoneDirectory(String directory) {
+            FtpInfo ftpInfo = source.getFtpInfo();
+            if (ftpInfo.getPostAction() != PostAction.MOVE) {
+                return false;
+            }
+            FtpClientPool pool = source.getPool();
+            return pool.resolve(directory).equals(pool.resolve(ftpInfo.getDonePath()));
+        }
+    }
+}
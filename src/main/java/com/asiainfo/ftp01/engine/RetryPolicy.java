@@ -0,0 +1,77 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.model.RetryInfo;
+import com.asiainfo.ftp01.utils.FtpReplyException;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+import org.apache.commons.net.ftp.FTPReply;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.ZipException;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 下载失败分类与退避: 4xx应答、连接断开、超时、数据不完整等暂时性失败换一个会话重试;
+ * 5xx应答、数据损坏等永久性失败本周期不再重试. 退避时间指数增长并加入随机抖动, 避免大量文件同时重试
+ */
+@Component
+public class RetryPolicy {
+
+    @Autowired
+    private RetryInfo retryInfo;
+
+    /**
+     * 是否为暂时性失败
+     *
+     * @param e 下载异常
+     * @return
+     */
+    public boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FtpReplyException) {
+                return FTPReply.isNegativeTransient(((FtpReplyException) cause).getReplyCode());
+            }
+            if (cause instanceof FTPConnectionClosedException || cause instanceof SocketTimeoutException
+                    || cause instanceof SocketException || cause instanceof EOFException) {
+                return true;
+            }
+            if (cause instanceof ZipException) {
+                // 压缩数据损坏, 重新下载也不会变化
+                return false;
+            }
+        }
+        return e instanceof IOException;
+    }
+
+    /**
+     * 第attempt次下载失败后是否在本周期内重试
+     *
+     * @param e       下载异常
+     * @param attempt 已下载次数
+     * @return
+     */
+    public boolean shouldRetry(Exception e, int attempt) {
+        return attempt < retryInfo.getMaxAttempts() && !Thread.currentThread().isInterrupted() && isTransient(e);
+    }
+
+    /**
+     * 第attempt次失败后的退避时间: 指数增长的上限内取[一半, 全部]之间的随机值
+     *
+     * @param attempt 已下载次数
+     * @return 退避时间(毫秒)
+     */
+    public long backoff(int attempt) {
+        double base = retryInfo.getInitialBackoffMillis() * Math.pow(retryInfo.getBackoffMultiplier(), attempt - 1);
+        long ceiling = (long) Math.min(retryInfo.getMaxBackoffMillis(), base);
+        if (ceiling <= 1) {
+            return Math.max(0, ceiling);
+        }
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling - ceiling / 2 + 1);
+    }
+}
@@ -0,0 +1,177 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.PostAction;
+import com.asiainfo.ftp01.pool.FtpClientPool;
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.utils.FtpUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 下载完成后处理ftp服务器上的源文件: 删除、改名到完成目录(保留相对采集目录的子目录)或超过保留期后删除.
+ * 删除、改名命令按批流水线发送, 一批命令只等待一次往返; 处理后的文件不再出现在列表中, 列表开销只与新文件数有关,
+ * 其同步记录也随之删除, 同步索引不随历史文件数无限增长
+ */
+@Slf4j
+@Component
+public class ServerCleaner {
+
+    @Autowired
+    private FtpUtils ftpUtils;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    /**
+     * 已同步的文件是否需要在服务器上处理
+     *
+     * @param ftpInfo  ftp配置
+     * @param fileInfo 已下载并校验的文件
+     * @return 是否需要删除或改名
+     */
+    public boolean eligible(FtpInfo ftpInfo, FileInfo fileInfo) {
+        switch (ftpInfo.getPostAction()) {
+            case DELETE:
+            case MOVE:
+                return true;
+            default:
+                return expired(ftpInfo, fileInfo);
+        }
+    }
+
+    /**
+     * 在一个会话上分批处理文件, 出错时停止, 未处理的文件下个周期列出时仍为已同步, 会再次处理
+     *
+     * @param source 采集源
+     * @param files  已同步的文件
+     */
+    public void clean(SourceContext source, List<FileInfo> files) {
+        if (files.isEmpty()) {
+            return;
+        }
+        FtpInfo ftpInfo = source.getFtpInfo();
+        FtpClientPool pool = source.getPool();
+        PostAction action = ftpInfo.getPostAction() == PostAction.MOVE ? PostAction.MOVE : PostAction.DELETE;
+        int batchSize = Math.max(1, ftpInfo.getPostActionBatchSize());
+        String donePath = pool.resolve(ftpInfo.getDonePath());
+        long start = System.currentTimeMillis();
+        int succeeded = 0;
+        int failed = 0;
+        // 已从服务器上删除或移走的文件, 不会再出现在列表中
+        List<FileInfo> removed = new ArrayList<>();
+        FTPClient client = null;
+        try {
+            client = pool.borrow();
+            // 本次已发送过MKD的完成目录下的子目录, ""为完成目录本身
+            Set<String> created = new HashSet<>();
+            for (int from = 0; from < files.size(); from += batchSize) {
+                List<FileInfo> batch = files.subList(from, Math.min(files.size(), from + batchSize));
+                List<String> commands = new ArrayList<>();
+                // 每个文件的最后一条命令的序号, 其应答决定是否成功
+                int[] last = new int[batch.size()];
+                for (int i = 0; i < batch.size(); i++) {
+                    FileInfo fileInfo = batch.get(i);
+                    String remoteFile = pool.resolve(fileInfo.getRemoteFile());
+                    if (action == PostAction.MOVE) {
+                        // 保留相对采集目录的子目录, 不同子目录下的同名文件不会互相覆盖
+                        String relative = relativeDirectory(ftpInfo.getRemotePath(), fileInfo.getPath());
+                        makeDirectories(commands, donePath, relative, created);
+                        commands.add("RNFR " + remoteFile);
+                        commands.add("RNTO " + donePath + (relative.isEmpty() ? "" : "/" + relative) + "/" + fileInfo.getName());
+                    } else {
+                        commands.add("DELE " + remoteFile);
+                    }
+                    last[i] = commands.size() - 1;
+                }
+                int[] replies = ftpUtils.sendCommands(client, commands);
+                for (int i = 0; i < batch.size(); i++) {
+                    int reply = replies[last[i]];
+                    if (FTPReply.isPositiveCompletion(reply)) {
+                        succeeded++;
+                        removed.add(batch.get(i));
+                    } else {
+                        failed++;
+                        log.warn("采集源:{},ftp文件处理失败:{},方式:{},应答码:{}", source.getName(), batch.get(i).getRemoteFile(), action, reply);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // 流水线中途出错时无法确定剩余应答, 丢弃该会话
+            pool.invalidate(client);
+            client = null;
+            log.error("采集源:" + source.getName() + ",处理ftp文件失败", e);
+        } finally {
+            pool.release(client);
+        }
+        try {
+            for (FileInfo fileInfo : removed) {
+                source.getSyncIndex().remove(fileInfo);
+            }
+        } catch (IOException e) {
+            log.error("采集源:" + source.getName() + ",删除同步记录失败", e);
+        }
+        metrics.cleaned(source.getName(), action, succeeded);
+        log.info("采集源:{},ftp文件处理完成,方式:{},待处理:{},成功:{},失败:{},耗时:{}ms",
+                source.getName(), action, files.size(), succeeded, failed, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 依次创建完成目录及其下的各级子目录, 每个目录只发送一次; 目录已存在时MKD返回失败, 忽略其应答
+     */
+    private static void makeDirectories(List<String> commands, String donePath, String relative, Set<String> created) {
+        if (created.add("")) {
+            commands.add("MKD " + donePath);
+        }
+        if (relative.isEmpty()) {
+            return;
+        }
+        for (int slash = relative.indexOf('/'); ; slash = relative.indexOf('/', slash + 1)) {
+            String directory = slash < 0 ? relative : relative.substring(0, slash);
+            if (created.add(directory)) {
+                commands.add("MKD " + donePath + "/" + directory);
+            }
+            if (slash < 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * ftp文件所在目录相对采集目录的路径, 采集目录下的文件为空串
+     *
+     * @param remotePath 采集目录, 与列表时的形式相同
+     * @param directory  ftp文件所在目录
+     */
+    static String relativeDirectory(String remotePath, String directory) {
+        String root = remotePath.endsWith("/") ? remotePath.substring(0, remotePath.length() - 1) : remotePath;
+        if (directory.startsWith(root + "/")) {
+            return directory.substring(root.length() + 1);
+        }
+        return "";
+    }
+
+    /**
+     * 保留方式下文件修改时间是否已超过保留天数
+     */
+    private boolean expired(FtpInfo ftpInfo, FileInfo fileInfo) {
+        if (ftpInfo.getRetentionDays() <= 0 || fileInfo.getTimestamp() <= 0) {
+            return false;
+        }
+        return System.currentTimeMillis() - fileInfo.getTimestamp() > TimeUnit.DAYS.toMillis(ftpInfo.getRetentionDays());
+    }
+}
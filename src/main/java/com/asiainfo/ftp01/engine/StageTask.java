@@ -0,0 +1,16 @@
+package com.asiainfo.ftp01.engine;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 流水线阶段中的单个任务
+ */
+public interface StageTask {
+
+    /**
+     * 执行任务
+     *
+     * @throws Exception
+     */
+    void run() throws Exception;
+}
@@ -0,0 +1,99 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.model.ExecutorInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 列表、下载、上传使用的线程. 传输线程大部分时间阻塞在socket读写上, JDK 21及以上使用虚拟线程,
+ * 阻塞时不占用平台线程, 每个线程只占用几KB内存, 大量并发会话不再需要同样多的平台线程; 较低版本使用平台线程.
+ * 虚拟线程通过反射创建, 项目仍以Java 8编译. 线程数仍由会话数决定, 不会超过ftp服务器允许的会话数
+ */
+@Slf4j
+@Component
+public class TransferExecutors {
+
+    @Autowired
+    private ExecutorInfo executorInfo;
+
+    /**
+     * Thread.ofVirtual(), 不支持虚拟线程时为null
+     */
+    private Method ofVirtual;
+
+    private Method name;
+
+    private Method factory;
+
+    private boolean virtual;
+
+    @PostConstruct
+    public void start() {
+        String mode = executorInfo.getMode();
+        if (!"platform".equalsIgnoreCase(mode)) {
+            try {
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                name = builder.getMethod("name", String.class, long.class);
+                factory = builder.getMethod("factory");
+                virtual = true;
+            } catch (ReflectiveOperationException e) {
+                if ("virtual".equalsIgnoreCase(mode)) {
+                    log.warn("当前JDK {}不支持虚拟线程,使用平台线程", System.getProperty("java.version"));
+                }
+            }
+        }
+        log.info("传输线程类型:{}", virtual ? "虚拟线程" : "平台线程");
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * 固定数量的传输线程
+     *
+     * @param prefix  线程名前缀, 线程名为前缀加序号
+     * @param threads 线程数
+     * @return 线程池
+     */
+    public ExecutorService newExecutor(String prefix, int threads) {
+        return Executors.newFixedThreadPool(Math.max(1, threads), threadFactory(prefix));
+    }
+
+    /**
+     * 创建并启动单个传输线程
+     *
+     * @param name 线程名
+     * @param task 任务
+     * @return 已启动的线程
+     */
+    public Thread start(String name, Runnable task) {
+        Thread thread = virtual ? threadFactory(name).newThread(task) : new Thread(task);
+        thread.setName(name);
+        thread.start();
+        return thread;
+    }
+
+    private ThreadFactory threadFactory(String prefix) {
+        if (virtual) {
+            try {
+                return (ThreadFactory) factory.invoke(name.invoke(ofVirtual.invoke(null), prefix, 1L));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("创建虚拟线程失败", e);
+            }
+        }
+        AtomicInteger threadId = new AtomicInteger();
+        return r -> new Thread(r, prefix + threadId.incrementAndGet());
+    }
+}
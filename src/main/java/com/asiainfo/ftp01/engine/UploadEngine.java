@@ -0,0 +1,297 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.index.PendingUploads;
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.DownloadReport;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.UploadInfo;
+import com.asiainfo.ftp01.model.UploadItem;
+import com.asiainfo.ftp01.pool.FtpClientPool;
+import com.asiainfo.ftp01.utils.FtpUtils;
+import com.asiainfo.ftp01.utils.NioFiles;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 批量并发上传引擎: 多个会话从共享队列领取文件上传到下游ftp服务器.
+ * 已确认存在的远程目录缓存在内存中, 不再逐级CWD/MKD; 文件先以临时文件名上传, 完成后RNFR/RNTO改为正式文件名,
+ * 下游不会读到不完整的文件; 目标文件已存在且服务器拒绝覆盖时, 先把旧文件改名让出位置, 新文件就位后再删除旧文件.
+ * 待上传文件在标记为已同步之前记录到磁盘, 上传成功后移除; 上传失败的文件随下一批重新上传, 进程重启后从记录中恢复.
+ * 统计字段与下载相同, 复用DownloadReport
+ */
+@Slf4j
+@Component
+public class UploadEngine {
+
+    @Autowired
+    private UploadInfo uploadInfo;
+
+    @Autowired
+    private FtpUtils ftpUtils;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired
+    private TransferExecutors executors;
+
+    private FtpClientPool pool;
+
+    private PendingUploads pending;
+
+    /**
+     * 已确认存在的远程目录(绝对路径)
+     */
+    private final Set<String> directories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 上一批上传失败、等待重新上传的文件
+     */
+    private final Queue<UploadItem> retries = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!uploadInfo.isEnabled()) {
+            return;
+        }
+        FtpInfo target = uploadInfo.getTarget();
+        pending = new PendingUploads(new File(uploadInfo.getPendingFile()));
+        // 上次运行中未上传成功的文件随第一批上传
+        retries.addAll(pending.list());
+        pool = new FtpClientPool(target, ftpUtils);
+        log.info("上传已开启,下游ftp服务器:{},路径:{},并发会话数:{}", target.getHost(), target.getRemotePath(), target.getConcurrency());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+        if (pending != null) {
+            try {
+                pending.close();
+            } catch (IOException e) {
+                log.error("关闭待上传记录失败", e);
+            }
+        }
+        if (!retries.isEmpty()) {
+            log.warn("上传引擎关闭,未上传成功的文件数:{},下次启动后继续上传", retries.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return pool != null;
+    }
+
+    /**
+     * 记录待上传文件, 文件标记为已同步之前调用, 进程中断后重启仍会上传
+     *
+     * @param source 采集源名称
+     * @param file   本地文件
+     * @return 待上传文件
+     * @throws IOException
+     */
+    public UploadItem enqueue(String source, File file) throws IOException {
+        UploadItem item = new UploadItem(source, file);
+        pending.add(item);
+        return item;
+    }
+
+    /**
+     * 并发上传一批文件, 连同之前上传失败的文件
+     *
+     * @param items 待上传文件
+     * @return 上传统计, 未开启上传时返回null
+     */
+    public DownloadReport upload(List<UploadItem> items) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Queue<UploadItem> queue = new ConcurrentLinkedQueue<>();
+        UploadItem retry;
+        while ((retry = retries.poll()) != null) {
+            queue.add(retry);
+        }
+        queue.addAll(items);
+        DownloadReport report = new DownloadReport();
+        if (queue.isEmpty()) {
+            return report;
+        }
+        FtpInfo target = uploadInfo.getTarget();
+        int sessions = Math.max(1, Math.min(Math.min(target.getConcurrency(), target.getMaxSessions()), queue.size()));
+        report.setTotal(queue.size());
+        report.setSessions(sessions);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        long start = System.currentTimeMillis();
+        ExecutorService executor = executors.newExecutor("upload-", sessions);
+        for (int i = 0; i < sessions; i++) {
+            executor.execute(() -> work(queue, succeeded, failed, bytes));
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("上传进行中,成功:{},失败:{},待上传:{}", succeeded.get(), failed.get(), queue.size());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // 未领取的文件同样下一批重新上传
+        retries.addAll(queue);
+        try {
+            pending.compactIfNeeded();
+        } catch (IOException e) {
+            log.error("压缩待上传记录失败", e);
+        }
+
+        report.setSucceeded(succeeded.get());
+        report.setFailed(report.getTotal() - succeeded.get());
+        report.setBytes(bytes.get());
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("本批上传完成,文件数:{},成功:{},失败:{},字节数:{},耗时:{}ms,吞吐:{} MB/s", report.getTotal(), report.getSucceeded(), report.getFailed(),
+                report.getBytes(), report.getElapsedMillis(), String.format("%.2f", report.getMegabytesPerSecond()));
+        log.info("上传ftp连接池统计:{}", pool.stats());
+        return report;
+    }
+
+    private void work(Queue<UploadItem> queue, AtomicInteger succeeded, AtomicInteger failed, AtomicLong bytes) {
+        FTPClient client = null;
+        UploadItem item;
+        while ((item = queue.poll()) != null) {
+            long start = System.nanoTime();
+            try {
+                if (client == null) {
+                    client = pool.borrow();
+                }
+                store(client, item);
+                pending.done(item);
+                long length = item.getFile().length();
+                bytes.addAndGet(length);
+                succeeded.incrementAndGet();
+                metrics.uploaded(item.getSource(), length, System.nanoTime() - start);
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                metrics.uploadFailed(item.getSource());
+                log.error("文件上传失败:" + item.getFile().getPath(), e);
+                retries.add(item);
+                // 传输异常后会话状态不确定, 丢弃该会话
+                pool.invalidate(client);
+                client = null;
+            }
+        }
+        pool.release(client);
+    }
+
+    /**
+     * 以临时文件名上传后改名. 服务器拒绝覆盖已存在的目标文件时, 先把旧文件改为唯一的名称, 新文件改名成功后再删除旧文件,
+     * 失败时把旧文件改回原名; 任何时候都不会在新文件就位之前删除下游已有的文件
+     */
+    private void store(FTPClient client, UploadItem item) throws IOException {
+        String directory = directory(item);
+        ensureDirectory(client, directory);
+        String name = item.getFile().getName();
+        String target = directory + "/" + name;
+        String temp = directory + "/" + name + uploadInfo.getTempSuffix();
+        try (InputStream in = NioFiles.newInputStream(item.getFile())) {
+            if (!ftpUtils.storeFile(client, temp, in)) {
+                // 目录可能已被下游删除, 下次重新确认
+                directories.remove(directory);
+                throw new IOException("上传文件失败:" + temp + ",返回:" + client.getReplyString());
+            }
+        }
+        int[] replies = ftpUtils.sendCommands(client, Arrays.asList("RNFR " + temp, "RNTO " + target));
+        if (!FTPReply.isPositiveCompletion(replies[1])) {
+            String old = target + "." + System.currentTimeMillis() + ".old";
+            replies = ftpUtils.sendCommands(client, Arrays.asList("RNFR " + target, "RNTO " + old));
+            if (!FTPReply.isPositiveCompletion(replies[1])) {
+                throw new IOException("上传文件改名失败:" + temp + " -> " + target + ",应答码:" + replies[1]);
+            }
+            replies = ftpUtils.sendCommands(client, Arrays.asList("RNFR " + temp, "RNTO " + target));
+            if (!FTPReply.isPositiveCompletion(replies[1])) {
+                ftpUtils.sendCommands(client, Arrays.asList("RNFR " + old, "RNTO " + target));
+                throw new IOException("上传文件改名失败:" + temp + " -> " + target + ",应答码:" + replies[1]);
+            }
+            replies = ftpUtils.sendCommands(client, Collections.singletonList("DELE " + old));
+            if (!FTPReply.isPositiveCompletion(replies[0])) {
+                log.warn("删除被替换的下游文件失败:{},应答码:{}", old, replies[0]);
+            }
+        }
+        log.debug("上传文件:{} -> {}", item.getFile().getPath(), target);
+    }
+
+    /**
+     * 上传目录的绝对路径
+     */
+    private String directory(UploadItem item) {
+        String directory = uploadInfo.getTarget().getRemotePath();
+        if (uploadInfo.isSourceDirectory()) {
+            directory = directory + "/" + item.getSource();
+        }
+        return pool.resolve(directory);
+    }
+
+    /**
+     * 逐级创建尚未确认存在的目录. MKD返回257的目录已创建; 最深一级MKD失败时(可能已存在, 也可能无权限)用CWD确认存在,
+     * 确认后各级目录都已存在. 只缓存确认过的目录, 确认过的目录不再发送命令
+     */
+    private void ensureDirectory(FTPClient client, String directory) throws IOException {
+        if (directories.contains(directory)) {
+            return;
+        }
+        List<String> missing = new ArrayList<>();
+        String path = directory;
+        while (StringUtils.isNotEmpty(path) && !"/".equals(path) && !directories.contains(path)) {
+            missing.add(path);
+            int index = path.lastIndexOf('/');
+            path = index < 0 ? "" : path.substring(0, index);
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        Collections.reverse(missing);
+        List<String> commands = new ArrayList<>(missing.size());
+        for (String dir : missing) {
+            commands.add("MKD " + dir);
+        }
+        int[] replies = ftpUtils.sendCommands(client, commands);
+        int last = missing.size() - 1;
+        if (replies[last] == FTPReply.PATHNAME_CREATED
+                || FTPReply.isPositiveCompletion(ftpUtils.sendCommands(client, Collections.singletonList("CWD " + missing.get(last)))[0])) {
+            directories.addAll(missing);
+            return;
+        }
+        for (int i = 0; i < last; i++) {
+            if (replies[i] == FTPReply.PATHNAME_CREATED) {
+                directories.add(missing.get(i));
+            }
+        }
+        log.warn("上传目录不存在且创建失败:{},应答码:{}", directory, replies[last]);
+    }
+}
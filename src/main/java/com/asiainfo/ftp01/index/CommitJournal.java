@@ -0,0 +1,294 @@
+package com.asiainfo.ftp01.index;
+
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.SyncStatus;
+import com.asiainfo.ftp01.utils.NioFiles;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 文件处理的提交日志. 开始下载一个ftp文件前追加并刷盘一行 B\t大小\t修改时间\tftp路径\t输出文件...,
+ * 处理中才确定的输出文件(如切分生成的文件)在生成前追加并刷盘 O\tftp路径\t输出文件...,
+ * 该文件在同步索引中标记完成后追加 C\tftp路径. 重启时只需读取该日志, 对没有C记录且同步索引中也未标记完成的文件,
+ * 删除其可能留下的输出文件和暂存文件, 下个周期重新处理, 不需要扫描本地目录; 续传用的.part文件保留.
+ * 刷盘在锁外进行, 多个线程同时写入的记录由一次fsync一起刷盘
+ */
+@Slf4j
+public class CommitJournal implements Closeable {
+
+    private static final String SEPARATOR = "\t";
+
+    private static final String BEGIN = "B";
+
+    private static final String COMMIT = "C";
+
+    private static final String OUTPUTS = "O";
+
+    private final File file;
+
+    /**
+     * 已开始未提交的文件
+     */
+    private final Map<String, Pending> pending = new HashMap<>();
+
+    private FileOutputStream fos;
+
+    private Writer writer;
+
+    /**
+     * 日志文件中的记录行数
+     */
+    private long records;
+
+    /**
+     * 刷盘锁, 同一时间只有一个线程fsync; 先取刷盘锁再取对象锁
+     */
+    private final Object syncLock = new Object();
+
+    /**
+     * 已写入的记录序号
+     */
+    private long written;
+
+    /**
+     * 已刷盘的记录序号
+     */
+    private volatile long synced;
+
+    public CommitJournal(File file) throws IOException {
+        this.file = file;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        load();
+        openWriter(true);
+    }
+
+    /**
+     * 处理上次运行中未提交的文件, 之后清空日志
+     *
+     * @param syncIndex 同步索引, 已标记完成的文件视为已提交
+     * @return 清理的文件数
+     * @throws IOException
+     */
+    public synchronized int recover(SyncIndex syncIndex) throws IOException {
+        int recovered = 0;
+        for (Map.Entry<String, Pending> e : pending.entrySet()) {
+            SyncIndex.Entry entry = syncIndex.get(e.getKey());
+            Pending p = e.getValue();
+            if (entry != null && entry.getStatus() == SyncStatus.DOWNLOADED && entry.getSize() == p.size && entry.getTimestamp() == p.timestamp) {
+                continue;
+            }
+            for (String path : p.outputs) {
+                File output = new File(path);
+                delete(output);
+                delete(NioFiles.staging(output));
+            }
+            recovered++;
+            log.info("清理未完成的文件:{},输出文件:{}", e.getKey(), p.outputs);
+        }
+        pending.clear();
+        truncate();
+        return recovered;
+    }
+
+    /**
+     * 记录开始处理一个ftp文件, 刷盘后返回
+     *
+     * @param fileInfo ftp文件
+     * @param outputs  处理过程中可能生成的本地文件
+     * @throws IOException
+     */
+    public void begin(FileInfo fileInfo, List<File> outputs) throws IOException {
+        long sequence;
+        synchronized (this) {
+            Pending p = new Pending(fileInfo.getSize(), fileInfo.getTimestamp(), new ArrayList<>(outputs.size()));
+            StringBuilder line = new StringBuilder(BEGIN).append(SEPARATOR).append(p.size).append(SEPARATOR).append(p.timestamp)
+                    .append(SEPARATOR).append(fileInfo.getRemoteFile());
+            for (File output : outputs) {
+                p.outputs.add(output.getPath());
+                line.append(SEPARATOR).append(output.getPath());
+            }
+            pending.put(fileInfo.getRemoteFile(), p);
+            sequence = append(line);
+        }
+        sync(sequence);
+    }
+
+    /**
+     * 补充记录处理中才确定的输出文件, 刷盘后返回, 之后才能生成这些文件; 都已记录过时不写日志
+     *
+     * @param fileInfo ftp文件, 必须已调用begin
+     * @param outputs  输出文件
+     * @throws IOException
+     */
+    public void extend(FileInfo fileInfo, List<File> outputs) throws IOException {
+        long sequence;
+        synchronized (this) {
+            Pending p = pending.get(fileInfo.getRemoteFile());
+            if (p == null) {
+                return;
+            }
+            StringBuilder line = new StringBuilder(OUTPUTS).append(SEPARATOR).append(fileInfo.getRemoteFile());
+            int added = 0;
+            for (File output : outputs) {
+                if (!p.outputs.contains(output.getPath())) {
+                    p.outputs.add(output.getPath());
+                    line.append(SEPARATOR).append(output.getPath());
+                    added++;
+                }
+            }
+            if (added == 0) {
+                return;
+            }
+            sequence = append(line);
+        }
+        sync(sequence);
+    }
+
+    /**
+     * 记录ftp文件处理结束(成功或失败都已写入同步索引); 不刷盘, 丢失时重启按同步索引判断
+     *
+     * @param fileInfo ftp文件
+     * @throws IOException
+     */
+    public synchronized void commit(FileInfo fileInfo) throws IOException {
+        if (pending.remove(fileInfo.getRemoteFile()) == null) {
+            return;
+        }
+        writer.write(COMMIT + SEPARATOR + fileInfo.getRemoteFile() + "\n");
+        writer.flush();
+        records++;
+    }
+
+    /**
+     * 没有未提交的文件时清空日志
+     *
+     * @throws IOException
+     */
+    public synchronized void compactIfIdle() throws IOException {
+        if (pending.isEmpty() && records > 0) {
+            truncate();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * 写入一行, 返回记录序号
+     */
+    private long append(StringBuilder line) throws IOException {
+        writer.write(line.append('\n').toString());
+        writer.flush();
+        records++;
+        return ++written;
+    }
+
+    /**
+     * 把序号不超过sequence的记录刷盘: 等待刷盘锁期间其他线程的fsync已覆盖时直接返回,
+     * 否则一次fsync刷盘到目前写入的全部记录
+     */
+    private void sync(long sequence) throws IOException {
+        synchronized (syncLock) {
+            if (synced >= sequence) {
+                return;
+            }
+            long target;
+            FileOutputStream out;
+            synchronized (this) {
+                target = written;
+                out = fos;
+            }
+            // 有未提交的文件时不会清空日志, out不会被关闭
+            out.getFD().sync();
+            synced = target;
+        }
+    }
+
+    private void load() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR);
+                try {
+                    if (BEGIN.equals(fields[0]) && fields.length >= 4) {
+                        List<String> outputs = new ArrayList<>(Arrays.asList(fields).subList(4, fields.length));
+                        pending.put(fields[3], new Pending(Long.parseLong(fields[1]), Long.parseLong(fields[2]), outputs));
+                    } else if (OUTPUTS.equals(fields[0]) && fields.length >= 2) {
+                        Pending p = pending.get(fields[1]);
+                        if (p != null) {
+                            p.outputs.addAll(Arrays.asList(fields).subList(2, fields.length));
+                        }
+                    } else if (COMMIT.equals(fields[0]) && fields.length == 2) {
+                        pending.remove(fields[1]);
+                    }
+                } catch (NumberFormatException e) {
+                    // 进程中断时可能留下不完整的最后一行, B记录在输出文件生成前已刷盘, 不完整的行可以忽略
+                    log.debug("忽略不完整的提交日志记录:{}", line);
+                }
+                records++;
+            }
+        }
+        log.info("加载提交日志:{},未提交文件数:{}", file.getPath(), pending.size());
+    }
+
+    private void truncate() throws IOException {
+        writer.close();
+        openWriter(false);
+        fos.getFD().sync();
+        records = 0;
+    }
+
+    private void openWriter(boolean append) throws IOException {
+        fos = new FileOutputStream(file, append);
+        writer = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8));
+        if (append && file.length() > 0) {
+            // 与之前可能不完整的最后一行隔开
+            writer.write("\n");
+            writer.flush();
+        }
+    }
+
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("删除文件失败:{}", file.getPath());
+        }
+    }
+
+    private static class Pending {
+        private final long size;
+        private final long timestamp;
+        private final List<String> outputs;
+
+        Pending(long size, long timestamp, List<String> outputs) {
+            this.size = size;
+            this.timestamp = timestamp;
+            this.outputs = outputs;
+        }
+    }
+}
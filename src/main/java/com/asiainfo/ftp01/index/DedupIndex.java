@@ -0,0 +1,175 @@
+package com.asiainfo.ftp01.index;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 内容去重索引, 记录已处理文件的大小和内容摘要前8字节(指纹), 文件改名或重新发布后不再重复下载、解压.
+ * 磁盘上为追加写的二进制文件, 每条记录16字节(大小+指纹); 内存中为开放寻址的long数组, 查询不产生对象.
+ * 大小和64位指纹同时相同才视为重复, 非恶意数据下误判概率可忽略
+ */
+@Slf4j
+public class DedupIndex implements Closeable {
+
+    private static final int RECORD_SIZE = 16;
+
+    /**
+     * 空槽位标记, 文件大小不会为负数
+     */
+    private static final long EMPTY = -1L;
+
+    private final File file;
+
+    private long[] sizes;
+
+    private long[] fingerprints;
+
+    private int count;
+
+    private DataOutputStream out;
+
+    public DedupIndex(File file) throws IOException {
+        this.file = file;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        allocate(1024);
+        load();
+        out = new DataOutputStream(new FileOutputStream(file, true));
+    }
+
+    /**
+     * 取摘要的前8字节作为指纹
+     *
+     * @param digest 内容摘要
+     * @return 指纹
+     */
+    public static long fingerprint(byte[] digest) {
+        return ByteBuffer.wrap(Arrays.copyOf(digest, 8)).getLong();
+    }
+
+    /**
+     * 是否已处理过同样的内容
+     *
+     * @param size        文件大小
+     * @param fingerprint 内容指纹
+     * @return
+     */
+    public synchronized boolean contains(long size, long fingerprint) {
+        int mask = sizes.length - 1;
+        for (int i = slot(size, fingerprint, mask); sizes[i] != EMPTY; i = (i + 1) & mask) {
+            if (sizes[i] == size && fingerprints[i] == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 记录已处理的内容, 追加写入索引文件; 丢失最后几条记录只会导致重复下载, 不做fsync
+     *
+     * @param size        文件大小
+     * @param fingerprint 内容指纹
+     * @throws IOException
+     */
+    public synchronized void add(long size, long fingerprint) throws IOException {
+        if (!put(size, fingerprint)) {
+            return;
+        }
+        out.writeLong(size);
+        out.writeLong(fingerprint);
+        out.flush();
+    }
+
+    /**
+     * 记录数
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private boolean put(long size, long fingerprint) {
+        int mask = sizes.length - 1;
+        int i = slot(size, fingerprint, mask);
+        for (; sizes[i] != EMPTY; i = (i + 1) & mask) {
+            if (sizes[i] == size && fingerprints[i] == fingerprint) {
+                return false;
+            }
+        }
+        sizes[i] = size;
+        fingerprints[i] = fingerprint;
+        // 装载因子不超过0.5, 探测链保持很短
+        if (++count * 2 > sizes.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    private void rehash() {
+        long[] oldSizes = sizes;
+        long[] oldFingerprints = fingerprints;
+        allocate(oldSizes.length * 2);
+        count = 0;
+        for (int i = 0; i < oldSizes.length; i++) {
+            if (oldSizes[i] != EMPTY) {
+                put(oldSizes[i], oldFingerprints[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        sizes = new long[capacity];
+        fingerprints = new long[capacity];
+        Arrays.fill(sizes, EMPTY);
+    }
+
+    private static int slot(long size, long fingerprint, int mask) {
+        long h = fingerprint ^ (size * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 32;
+        h ^= h >>> 16;
+        return (int) h & mask;
+    }
+
+    private void load() throws IOException {
+        if (!file.exists()) {
+            log.info("去重索引不存在,新建:{}", file.getPath());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long length = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            for (long i = 0; i < length / RECORD_SIZE; i++) {
+                put(in.readLong(), in.readLong());
+            }
+        } catch (EOFException e) {
+            log.warn("去重索引文件不完整:{}", file.getPath());
+        }
+        if (length % RECORD_SIZE != 0) {
+            // 进程中断时可能留下不完整的最后一条记录, 截掉后继续追加
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(length - length % RECORD_SIZE);
+            }
+        }
+        log.info("加载去重索引:{},记录数:{},耗时:{}ms", file.getPath(), count, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,320 @@
+package com.asiainfo.ftp01.index;
+
+import com.asiainfo.ftp01.model.SyncStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 紧凑的ftp文件目录, 百万级文件的同步记录不再是每个文件一组String、Map.Entry和记录对象:
+ * 目录路径只保存一次, 以编号引用; 文件名以UTF-8连续存放在字节数组中; 大小、修改时间、状态存放在基本类型数组中;
+ * 按目录编号和文件名做开放寻址哈希查找, 查询时不拼接完整路径, ASCII文件名比较时不产生对象.
+ * 删除的记录只从哈希表中移除并做标记, 占用的空间由compact回收; 修改时间的精度存放在状态字节的标志位中. 非线程安全, 由调用方同步
+ */
+public class FileCatalog {
+
+    private static final SyncStatus[] STATUSES = SyncStatus.values();
+
+    /**
+     * 已删除记录的状态标记
+     */
+    private static final byte REMOVED = -1;
+
+    /**
+     * 状态字节中表示修改时间只精确到分钟的标志位
+     */
+    private static final byte COARSE = 0x40;
+
+    private final Map<String, Integer> directoryIds = new HashMap<>();
+
+    private final List<String> directories = new ArrayList<>();
+
+    /**
+     * 文件名字节, 第i条记录的文件名为names[nameOffsets[i], nameOffsets[i + 1])
+     */
+    private byte[] names = new byte[1 << 16];
+
+    private int[] nameOffsets = new int[1025];
+
+    private int[] fileDirectories = new int[1024];
+
+    private long[] sizes = new long[1024];
+
+    private long[] timestamps = new long[1024];
+
+    private byte[] statuses = new byte[1024];
+
+    private int[] hashes = new int[1024];
+
+    /**
+     * 哈希表, 槽位中为记录序号+1, 0为空
+     */
+    private int[] table = new int[2048];
+
+    /**
+     * 记录序号上界, 包含已删除的记录
+     */
+    private int count;
+
+    /**
+     * 有效记录数
+     */
+    private int live;
+
+    /**
+     * 查找记录
+     *
+     * @param directory 目录
+     * @param name      文件名
+     * @return 记录序号, 不存在时为-1
+     */
+    public int find(String directory, String name) {
+        Integer directoryId = directoryIds.get(directory);
+        if (directoryId == null) {
+            return -1;
+        }
+        int hash = hash(directoryId, name);
+        int mask = table.length - 1;
+        for (int i = hash & mask; table[i] != 0; i = (i + 1) & mask) {
+            int index = table[i] - 1;
+            if (hashes[index] == hash && fileDirectories[index] == directoryId && nameEquals(index, name)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 新增或更新记录
+     *
+     * @param directory 目录
+     * @param name      文件名
+     * @param size      文件大小
+     * @param timestamp 修改时间
+     * @param coarse    修改时间是否只精确到分钟
+     * @param status    同步状态
+     * @return 记录序号
+     */
+    public int put(String directory, String name, long size, long timestamp, boolean coarse, SyncStatus status) {
+        int index = find(directory, name);
+        if (index < 0) {
+            index = add(directoryId(directory), name);
+            live++;
+        }
+        sizes[index] = size;
+        timestamps[index] = timestamp;
+        statuses[index] = (byte) (status.ordinal() | (coarse ? COARSE : 0));
+        return index;
+    }
+
+    /**
+     * 删除记录, 之后find不再返回该序号
+     *
+     * @param index 记录序号
+     */
+    public void remove(int index) {
+        if (statuses[index] == REMOVED) {
+            return;
+        }
+        int mask = table.length - 1;
+        int slot = hashes[index] & mask;
+        while (table[slot] != index + 1) {
+            slot = (slot + 1) & mask;
+        }
+        // 线性探测表的删除: 把后续探测链上的记录前移到空出的槽位, 不留墓碑
+        table[slot] = 0;
+        for (int i = (slot + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int home = hashes[table[i] - 1] & mask;
+            boolean movable = slot <= i ? (home <= slot || home > i) : (home <= slot && home > i);
+            if (movable) {
+                table[slot] = table[i];
+                table[i] = 0;
+                slot = i;
+            }
+        }
+        statuses[index] = REMOVED;
+        live--;
+    }
+
+    /**
+     * 记录是否已删除
+     */
+    public boolean isRemoved(int index) {
+        return statuses[index] == REMOVED;
+    }
+
+    /**
+     * 有效记录数
+     */
+    public int size() {
+        return live;
+    }
+
+    /**
+     * 记录序号上界(不含), 遍历时需跳过已删除的记录
+     */
+    public int limit() {
+        return count;
+    }
+
+    /**
+     * 只包含有效记录的新目录, 回收已删除记录占用的空间
+     */
+    public FileCatalog compact() {
+        FileCatalog compacted = new FileCatalog();
+        for (int i = 0; i < count; i++) {
+            if (statuses[i] != REMOVED) {
+                compacted.put(getDirectory(i), getName(i), sizes[i], timestamps[i], isCoarse(i), getStatus(i));
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * 目录数
+     */
+    public int directoryCount() {
+        return directories.size();
+    }
+
+    public String getDirectory(int index) {
+        return directories.get(fileDirectories[index]);
+    }
+
+    public String getName(int index) {
+        return new String(names, nameOffsets[index], nameOffsets[index + 1] - nameOffsets[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * ftp文件完整路径, 与FileInfo.getRemoteFile相同
+     */
+    public String getRemoteFile(int index) {
+        return getDirectory(index) + "/" + getName(index);
+    }
+
+    public long getSize(int index) {
+        return sizes[index];
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * 修改时间是否只精确到分钟
+     */
+    public boolean isCoarse(int index) {
+        return (statuses[index] & COARSE) != 0;
+    }
+
+    public void setTimestamp(int index, long timestamp, boolean coarse) {
+        timestamps[index] = timestamp;
+        statuses[index] = (byte) (coarse ? statuses[index] | COARSE : statuses[index] & ~COARSE);
+    }
+
+    public SyncStatus getStatus(int index) {
+        return STATUSES[statuses[index] & ~COARSE];
+    }
+
+    public void setStatus(int index, SyncStatus status) {
+        statuses[index] = (byte) (status.ordinal() | statuses[index] & COARSE);
+    }
+
+    private int directoryId(String directory) {
+        Integer id = directoryIds.get(directory);
+        if (id == null) {
+            id = directories.size();
+            directories.add(directory);
+            directoryIds.put(directory, id);
+        }
+        return id;
+    }
+
+    private int add(int directoryId, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (count == sizes.length) {
+            int capacity = sizes.length * 2;
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+            fileDirectories = Arrays.copyOf(fileDirectories, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        int offset = nameOffsets[count];
+        if (offset + bytes.length > names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, offset + bytes.length));
+        }
+        System.arraycopy(bytes, 0, names, offset, bytes.length);
+        int index = count++;
+        nameOffsets[count] = offset + bytes.length;
+        fileDirectories[index] = directoryId;
+        hashes[index] = hash(directoryId, name);
+        // 装载因子不超过0.5, 探测链保持很短
+        if (count * 2 > table.length) {
+            table = new int[table.length * 2];
+            for (int i = 0; i < index; i++) {
+                insert(i);
+            }
+        }
+        insert(index);
+        return index;
+    }
+
+    private void insert(int index) {
+        int mask = table.length - 1;
+        int i = hashes[index] & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = index + 1;
+    }
+
+    /**
+     * 比较文件名, 只含ASCII字符时逐字节比较, 否则编码后比较
+     */
+    private boolean nameEquals(int index, String name) {
+        int offset = nameOffsets[index];
+        int length = nameOffsets[index + 1] - offset;
+        if (length == name.length()) {
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                char c = name.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+                if (names[offset + i] != (byte) c) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        } else if (length < name.length()) {
+            // UTF-8编码不会比字符数短
+            return false;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (names[offset + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(int directoryId, String name) {
+        int h = name.hashCode() * 31 + directoryId;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,243 @@
+package com.asiainfo.ftp01.index;
+
+import com.asiainfo.ftp01.model.UploadItem;
+import com.asiainfo.ftp01.utils.NioFiles;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 待上传文件记录. 文件在标记为已同步之前加入, 上传成功后移除, 进程重启后未上传的文件继续上传.
+ * 磁盘上为追加写的日志文件, 每行一条记录: ADD\t采集源\t本地路径 或 DONE\t本地路径; 失效记录过多时重写压缩.
+ * ADD记录刷盘后返回, 刷盘在锁外进行, 多个线程同时加入的记录由一次fsync一起刷盘
+ */
+@Slf4j
+public class PendingUploads implements Closeable {
+
+    private static final String SEPARATOR = "\t";
+
+    private static final String ADD = "ADD";
+
+    private static final String DONE = "DONE";
+
+    /**
+     * 日志行数超过待上传文件数的倍数时压缩
+     */
+    private static final int COMPACT_RATIO = 2;
+
+    private final File file;
+
+    /**
+     * 本地路径 -> 待上传文件, 按加入顺序
+     */
+    private final Map<String, UploadItem> pending = new LinkedHashMap<>();
+
+    private FileOutputStream fos;
+
+    private Writer writer;
+
+    /**
+     * 日志文件中的记录行数
+     */
+    private long records;
+
+    /**
+     * 刷盘锁, 同一时间只有一个线程fsync; 先取刷盘锁再取对象锁
+     */
+    private final Object syncLock = new Object();
+
+    /**
+     * 已写入的记录序号
+     */
+    private long written;
+
+    /**
+     * 已刷盘的记录序号
+     */
+    private volatile long synced;
+
+    public PendingUploads(File file) throws IOException {
+        this.file = file;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        load();
+        openWriter();
+    }
+
+    /**
+     * 记录待上传文件, 刷盘后返回
+     *
+     * @param item 待上传文件
+     * @throws IOException
+     */
+    public void add(UploadItem item) throws IOException {
+        long sequence;
+        synchronized (this) {
+            pending.put(item.getFile().getPath(), item);
+            sequence = append(ADD + SEPARATOR + item.getSource() + SEPARATOR + item.getFile().getPath());
+        }
+        sync(sequence);
+    }
+
+    /**
+     * 文件上传成功后移除; 不刷盘, 丢失时重启后重新上传
+     *
+     * @param item 已上传文件
+     * @throws IOException
+     */
+    public synchronized void done(UploadItem item) throws IOException {
+        if (pending.remove(item.getFile().getPath()) == null) {
+            return;
+        }
+        append(DONE + SEPARATOR + item.getFile().getPath());
+    }
+
+    /**
+     * 全部待上传文件
+     */
+    public synchronized List<UploadItem> list() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * 日志中失效记录过多时, 重写为只包含待上传文件的新日志
+     *
+     * @throws IOException
+     */
+    public void compactIfNeeded() throws IOException {
+        // 换日志文件时不能有线程在刷盘旧文件
+        synchronized (syncLock) {
+            synchronized (this) {
+                compact();
+            }
+        }
+    }
+
+    private void compact() throws IOException {
+        if (records <= (long) pending.size() * COMPACT_RATIO + 1000) {
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp);
+             Writer tempWriter = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+            for (UploadItem item : pending.values()) {
+                tempWriter.write(ADD + SEPARATOR + item.getSource() + SEPARATOR + item.getFile().getPath() + "\n");
+            }
+            tempWriter.flush();
+            fos.getFD().sync();
+        }
+        writer.close();
+        NioFiles.move(temp, file);
+        openWriter();
+        log.info("待上传记录压缩完成,记录数:{}->{}", records, pending.size());
+        records = pending.size();
+        // 新日志已刷盘, 包含此前写入的全部待上传文件
+        synced = written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                writer.close();
+            }
+        }
+    }
+
+    private long append(String line) throws IOException {
+        writer.write(line + "\n");
+        writer.flush();
+        records++;
+        return ++written;
+    }
+
+    /**
+     * 把序号不超过sequence的记录刷盘: 等待刷盘锁期间其他线程的fsync已覆盖时直接返回,
+     * 否则一次fsync刷盘到目前写入的全部记录
+     */
+    private void sync(long sequence) throws IOException {
+        synchronized (syncLock) {
+            if (synced >= sequence) {
+                return;
+            }
+            long target;
+            FileOutputStream out;
+            synchronized (this) {
+                target = written;
+                out = fos;
+            }
+            out.getFD().sync();
+            synced = target;
+        }
+    }
+
+    private void load() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR, 3);
+                if (ADD.equals(fields[0]) && fields.length == 3) {
+                    pending.put(fields[2], new UploadItem(fields[1], new File(fields[2])));
+                } else if (DONE.equals(fields[0]) && fields.length == 2) {
+                    pending.remove(fields[1]);
+                } else {
+                    // 进程中断时可能留下不完整的最后一行
+                    continue;
+                }
+                records++;
+            }
+        }
+        // 已被删除或移走的本地文件无法再上传
+        pending.values().removeIf(item -> {
+            if (!item.getFile().exists()) {
+                log.warn("待上传文件已不存在,不再上传:{}", item.getFile().getPath());
+                return true;
+            }
+            return false;
+        });
+        log.info("加载待上传记录:{},待上传文件数:{}", file.getPath(), pending.size());
+    }
+
+    private void openWriter() throws IOException {
+        boolean partial = file.exists() && endsWithPartialLine();
+        fos = new FileOutputStream(file, true);
+        writer = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8));
+        if (partial) {
+            // 补齐换行, 避免新记录接在不完整的行后面
+            writer.write("\n");
+            writer.flush();
+        }
+    }
+
+    private boolean endsWithPartialLine() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() == 0) {
+                return false;
+            }
+            raf.seek(raf.length() - 1);
+            return raf.read() != '\n';
+        }
+    }
+}
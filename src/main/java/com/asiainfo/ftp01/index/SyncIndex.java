@@ -0,0 +1,327 @@
+package com.asiainfo.ftp01.index;
+
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.SyncStatus;
+import com.asiainfo.ftp01.utils.NioFiles;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 增量同步索引, 以ftp文件完整路径为key记录大小、修改时间和状态.
+ * 磁盘上为追加写的日志文件, 每行一条记录: 状态\t大小\t修改时间\tftp路径, 修改时间只精确到分钟(LIST)时带后缀m,
+ * 同一路径以最后一条为准, 状态为REMOVED时删除该记录;
+ * 启动时整体加载到内存中的FileCatalog, 日志中失效记录过多时重写压缩. 服务器上已删除或移走的文件从索引中删除, 索引大小与服务器上的文件数相当.
+ */
+@Slf4j
+public class SyncIndex implements Closeable {
+
+    private static final String SEPARATOR = "\t";
+
+    /**
+     * 删除记录的状态
+     */
+    private static final String REMOVED = "REMOVED";
+
+    /**
+     * 只精确到分钟的修改时间的后缀
+     */
+    private static final String COARSE = "m";
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    /**
+     * 日志行数超过有效记录数的倍数时压缩
+     */
+    private static final int COMPACT_RATIO = 2;
+
+    private final File file;
+
+    private FileCatalog catalog = new FileCatalog();
+
+    private Writer writer;
+
+    /**
+     * 日志文件中的记录行数
+     */
+    private long records;
+
+    public SyncIndex(File file) throws IOException {
+        this.file = file;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        load();
+        writer = openWriter();
+    }
+
+    /**
+     * 查询ftp文件的同步记录
+     *
+     * @param remoteFile ftp文件完整路径
+     * @return 同步记录, 不存在时为null
+     */
+    public synchronized Entry get(String remoteFile) {
+        int slash = remoteFile.lastIndexOf('/');
+        int index = catalog.find(remoteFile.substring(0, Math.max(slash, 0)), remoteFile.substring(slash + 1));
+        return index < 0 ? null : new Entry(catalog.getSize(index), catalog.getTimestamp(index), catalog.getStatus(index));
+    }
+
+    /**
+     * ftp文件是否已同步: 已下载且大小、修改时间均未变化
+     *
+     * @param fileInfo ftp文件信息
+     * @return
+     */
+    public synchronized boolean isSynced(FileInfo fileInfo) {
+        return hasUnchanged(fileInfo, SyncStatus.DOWNLOADED);
+    }
+
+    /**
+     * ftp文件是否已隔离且之后未变化
+     *
+     * @param fileInfo ftp文件信息
+     * @return
+     */
+    public synchronized boolean isQuarantined(FileInfo fileInfo) {
+        return hasUnchanged(fileInfo, SyncStatus.QUARANTINED);
+    }
+
+    /**
+     * 记录为指定状态, 且大小、修改时间均未变化
+     */
+    private boolean hasUnchanged(FileInfo fileInfo, SyncStatus status) {
+        int index = catalog.find(fileInfo.getPath(), fileInfo.getName());
+        return index >= 0 && catalog.getStatus(index) == status
+                && catalog.getSize(index) == fileInfo.getSize()
+                && sameTimestamp(catalog.getTimestamp(index), catalog.isCoarse(index), fileInfo.getTimestamp(), fileInfo.isCoarseTimestamp());
+    }
+
+    /**
+     * 指定状态的ftp文件
+     *
+     * @param status 同步状态
+     * @return ftp文件完整路径
+     */
+    public synchronized List<String> list(SyncStatus status) {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < catalog.limit(); i++) {
+            if (!catalog.isRemoved(i) && catalog.getStatus(i) == status) {
+                files.add(catalog.getRemoteFile(i));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 解除全部隔离, 改为失败状态, 下个周期重新下载
+     *
+     * @return 解除的文件数
+     * @throws IOException
+     */
+    public synchronized int release() throws IOException {
+        int released = 0;
+        for (int i = 0; i < catalog.limit(); i++) {
+            if (!catalog.isRemoved(i) && catalog.getStatus(i) == SyncStatus.QUARANTINED) {
+                catalog.setStatus(i, SyncStatus.FAILED);
+                writer.write(format(i));
+                records++;
+                released++;
+            }
+        }
+        writer.flush();
+        return released;
+    }
+
+    /**
+     * LIST的修改时间只精确到分钟(较早的文件只到天)且按本地时区解析, MLSD为精确的UTC时间;
+     * 记录与列表的精度不同时(切换了列表方式)相差一天以内视为相同, 避免全部重新下载. 精度相同时必须完全相等,
+     * 精确时间恰好落在整分上也不会被当作LIST的时间
+     */
+    private static boolean sameTimestamp(long recorded, boolean recordedCoarse, long listed, boolean listedCoarse) {
+        if (recorded == listed) {
+            return true;
+        }
+        return recordedCoarse != listedCoarse && Math.abs(recorded - listed) < DAY;
+    }
+
+    /**
+     * 是否存在该ftp文件的记录
+     *
+     * @param fileInfo ftp文件信息
+     * @return
+     */
+    public synchronized boolean contains(FileInfo fileInfo) {
+        return catalog.find(fileInfo.getPath(), fileInfo.getName()) >= 0;
+    }
+
+    /**
+     * 记录ftp文件的同步状态, 追加写入日志
+     *
+     * @param fileInfo ftp文件信息
+     * @param status   同步状态
+     * @throws IOException
+     */
+    public synchronized void mark(FileInfo fileInfo, SyncStatus status) throws IOException {
+        int index = catalog.put(fileInfo.getPath(), fileInfo.getName(), fileInfo.getSize(), fileInfo.getTimestamp(), fileInfo.isCoarseTimestamp(), status);
+        writer.write(format(index));
+        writer.flush();
+        records++;
+    }
+
+    /**
+     * 删除ftp文件的记录, 文件已从服务器上删除或移走时调用
+     *
+     * @param fileInfo ftp文件信息
+     * @throws IOException
+     */
+    public synchronized void remove(FileInfo fileInfo) throws IOException {
+        int index = catalog.find(fileInfo.getPath(), fileInfo.getName());
+        if (index < 0) {
+            return;
+        }
+        catalog.remove(index);
+        writer.write(REMOVED + SEPARATOR + 0 + SEPARATOR + 0 + SEPARATOR + fileInfo.getRemoteFile() + "\n");
+        writer.flush();
+        records++;
+    }
+
+    /**
+     * 有效记录数
+     */
+    public synchronized int size() {
+        return catalog.size();
+    }
+
+    /**
+     * 日志中失效记录过多时, 重写为只包含有效记录的新日志
+     *
+     * @throws IOException
+     */
+    public synchronized void compactIfNeeded() throws IOException {
+        if (records <= (long) catalog.size() * COMPACT_RATIO + 1000) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp);
+             Writer tempWriter = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+            for (int i = 0; i < catalog.limit(); i++) {
+                if (!catalog.isRemoved(i)) {
+                    tempWriter.write(format(i));
+                }
+            }
+            tempWriter.flush();
+            fos.getFD().sync();
+        }
+        writer.close();
+        NioFiles.move(temp, file);
+        writer = openWriter();
+        catalog = catalog.compact();
+        log.info("同步索引压缩完成,记录数:{}->{},耗时:{}ms", records, catalog.size(), System.currentTimeMillis() - start);
+        records = catalog.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void load() throws IOException {
+        if (!file.exists()) {
+            log.info("同步索引不存在,新建:{}", file.getPath());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long invalid = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR, 4);
+                if (fields.length != 4) {
+                    // 进程中断时可能留下不完整的最后一行
+                    invalid++;
+                    continue;
+                }
+                try {
+                    String remoteFile = fields[3];
+                    int slash = remoteFile.lastIndexOf('/');
+                    if (REMOVED.equals(fields[0])) {
+                        records++;
+                        int index = catalog.find(remoteFile.substring(0, Math.max(slash, 0)), remoteFile.substring(slash + 1));
+                        if (index >= 0) {
+                            catalog.remove(index);
+                        }
+                        continue;
+                    }
+                    // 未带精度后缀的旧记录按精确时间处理, 切换列表方式后这些文件最多重新下载一次
+                    boolean coarse = fields[2].endsWith(COARSE);
+                    long timestamp = Long.parseLong(coarse ? fields[2].substring(0, fields[2].length() - COARSE.length()) : fields[2]);
+                    catalog.put(remoteFile.substring(0, Math.max(slash, 0)), remoteFile.substring(slash + 1),
+                            Long.parseLong(fields[1]), timestamp, coarse, SyncStatus.valueOf(fields[0]));
+                    records++;
+                } catch (IllegalArgumentException e) {
+                    invalid++;
+                }
+            }
+        }
+        if (catalog.limit() > catalog.size()) {
+            // 回收日志中已删除记录占用的空间
+            catalog = catalog.compact();
+        }
+        log.info("加载同步索引:{},有效记录数:{},目录数:{},日志记录数:{},无效行数:{},耗时:{}ms",
+                file.getPath(), catalog.size(), catalog.directoryCount(), records, invalid, System.currentTimeMillis() - start);
+    }
+
+    private Writer openWriter() throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        if (endsWithPartialLine()) {
+            // 补齐换行, 避免新记录接在不完整的行后面
+            out.write("\n");
+            out.flush();
+        }
+        return out;
+    }
+
+    private boolean endsWithPartialLine() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() == 0) {
+                return false;
+            }
+            raf.seek(raf.length() - 1);
+            return raf.read() != '\n';
+        }
+    }
+
+    private String format(int index) {
+        return catalog.getStatus(index).name() + SEPARATOR + catalog.getSize(index) + SEPARATOR + catalog.getTimestamp(index)
+                + (catalog.isCoarse(index) ? COARSE : "") + SEPARATOR + catalog.getRemoteFile(index) + "\n";
+    }
+
+    /**
+     * 同步记录
+     */
+    @Data
+    public static class Entry {
+        private final long size;
+        private final long timestamp;
+        private final SyncStatus status;
+    }
+}
@@ -0,0 +1,268 @@
+package com.asiainfo.ftp01.metrics;
+
+import com.asiainfo.ftp01.model.DownloadReport;
+import com.asiainfo.ftp01.model.PostAction;
+import com.asiainfo.ftp01.model.StageStats;
+import com.asiainfo.ftp01.pool.FtpClientPool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 采集流水线指标, 通过actuator的/actuator/prometheus暴露, 按采集源打source标签.
+ * 每秒字节数由Prometheus对ftp_bytes_total按stage标签求rate得到
+ */
+@Component
+public class PipelineMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Map<String, SourceMeters> sources = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 注册采集源的指标及其连接池指标
+     *
+     * @param source 采集源名称
+     * @param pool   采集源的连接池
+     */
+    public void bindSource(String source, FtpClientPool pool) {
+        sources.computeIfAbsent(source, SourceMeters::new);
+        bindPool(source, pool);
+    }
+
+    public void listed(String source, int count, long nanos) {
+        SourceMeters meters = meters(source);
+        meters.listed.increment(count);
+        meters.listTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void skipped(String source, int count) {
+        meters(source).skipped.increment(count);
+    }
+
+    public void transferred(String source, long bytes, long nanos) {
+        SourceMeters meters = meters(source);
+        meters.downloaded.increment();
+        meters.downloadBytes.increment(bytes);
+        meters.transferTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void retried(String source) {
+        Counter.builder("ftp.files.retried").tags("source", source).description("暂时性失败后重试的下载次数").register(registry).increment();
+    }
+
+    public void quarantined(String source) {
+        Counter.builder("ftp.files.quarantined").tags("source", source).description("多次失败而隔离的文件数").register(registry).increment();
+    }
+
+    /**
+     * 内容与已处理文件相同而跳过的文件
+     *
+     * @param source 采集源名称
+     */
+    public void deduplicated(String source) {
+        Counter.builder("ftp.files.deduplicated").tags("source", source).description("内容重复而跳过的文件数").register(registry).increment();
+    }
+
+    /**
+     * 上传到下游ftp服务器的文件
+     *
+     * @param source 文件所属采集源名称
+     * @param bytes  文件字节数
+     * @param nanos  上传耗时(纳秒)
+     */
+    public void uploaded(String source, long bytes, long nanos) {
+        Counter.builder("ftp.files.uploaded").tags("source", source).description("上传成功的文件数").register(registry).increment();
+        Counter.builder("ftp.bytes").tags("source", source, "stage", "upload").baseUnit("bytes").description("上传字节数").register(registry).increment(bytes);
+        Timer.builder("ftp.upload").tags("source", source).description("单个文件上传耗时").register(registry).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void uploadFailed(String source) {
+        Counter.builder("ftp.files.failed").tags("source", source, "stage", "upload").description("上传失败的文件数").register(registry).increment();
+    }
+
+    /**
+     * 下载后在ftp服务器上删除或改名的文件数
+     *
+     * @param source 采集源名称
+     * @param action 处理方式
+     * @param count  成功处理的文件数
+     */
+    public void cleaned(String source, PostAction action, int count) {
+        Counter.builder("ftp.files.cleaned").tags("source", source, "action", action.name().toLowerCase())
+                .description("下载后在ftp服务器上删除或改名的文件数").register(registry).increment(count);
+    }
+
+    /**
+     * 输出文件按分区目录存放及切分
+     *
+     * @param source 采集源名称
+     * @param files  生成的文件数, 切分时为切分后的文件数
+     */
+    public void routed(String source, int files) {
+        Counter.builder("ftp.files.routed").tags("source", source).description("按分区目录存放的输出文件数").register(registry).increment(files);
+    }
+
+    /**
+     * 记录转换
+     *
+     * @param source  采集源名称
+     * @param lines   读取的行数
+     * @param records 过滤后输出的记录数
+     * @param nanos   转换耗时
+     */
+    public void transformed(String source, long lines, long records, long nanos) {
+        Counter.builder("ftp.transform.lines").tags("source", source).description("记录转换读取的行数").register(registry).increment(lines);
+        Counter.builder("ftp.transform.records").tags("source", source).description("记录转换输出的记录数").register(registry).increment(records);
+        Timer.builder("ftp.transform.time").tags("source", source).description("单个文件的记录转换耗时").register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void transferFailed(String source) {
+        meters(source).downloadFailed.increment();
+    }
+
+    public void decompressed(String source, long bytes, long nanos) {
+        SourceMeters meters = meters(source);
+        meters.decompressed.increment();
+        meters.decompressBytes.increment(bytes);
+        meters.decompressTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void decompressFailed(String source) {
+        meters(source).decompressFailed.increment();
+    }
+
+    /**
+     * 记录一个下载周期
+     *
+     * @param source 采集源名称
+     * @param nanos  周期耗时
+     * @param report 下载统计, 列表失败时为null
+     */
+    public void cycle(String source, long nanos, DownloadReport report) {
+        SourceMeters meters = meters(source);
+        meters.cycleTimer.record(nanos, TimeUnit.NANOSECONDS);
+        meters.lastCycleMillis.set(TimeUnit.NANOSECONDS.toMillis(nanos));
+        if (report != null) {
+            meters.lastThroughput.set(report.getElapsedMillis() == 0 ? 0 : report.getBytes() * 1000 / report.getElapsedMillis());
+        }
+    }
+
+    /**
+     * 记录调度器安排的下一周期延迟
+     *
+     * @param source      采集源名称
+     * @param delayMillis 延迟(毫秒)
+     */
+    public void scheduled(String source, long delayMillis) {
+        meters(source).intervalMillis.set(delayMillis);
+    }
+
+    /**
+     * 注册流水线阶段的队列深度等指标
+     *
+     * @param stats 阶段统计
+     */
+    public void bindStage(String name, Supplier<StageStats> stats) {
+        Gauge.builder("ftp.stage.queue.depth", stats, s -> s.get().getQueueDepth()).tag("stage", name).register(registry);
+        Gauge.builder("ftp.stage.running", stats, s -> s.get().getRunning()).tag("stage", name).register(registry);
+        Gauge.builder("ftp.stage.blocked.seconds", stats, s -> s.get().getBlockedMillis() / 1000.0).tag("stage", name)
+                .description("队列满时提交方累计阻塞时间").register(registry);
+    }
+
+    private SourceMeters meters(String source) {
+        return sources.computeIfAbsent(source, SourceMeters::new);
+    }
+
+    private void bindPool(String source, FtpClientPool pool) {
+        Tags tags = Tags.of("source", source);
+        Gauge.builder("ftp.pool.size", pool, p -> p.stats().getSize()).tags(tags).register(registry);
+        Gauge.builder("ftp.pool.idle", pool, p -> p.stats().getIdle()).tags(tags).register(registry);
+        Gauge.builder("ftp.pool.active", pool, p -> p.stats().getActive()).tags(tags).register(registry);
+        Gauge.builder("ftp.pool.max", pool, p -> p.stats().getMaxSize()).tags(tags).register(registry);
+        FunctionCounter.builder("ftp.pool.validation.failures", pool, p -> p.stats().getValidationFailures()).tags(tags).register(registry);
+        FunctionTimer.builder("ftp.connect", pool, p -> p.stats().getCreated(), p -> p.stats().getConnectNanos(), TimeUnit.NANOSECONDS)
+                .tags(tags).description("建立ftp会话(连接+登录)耗时").register(registry);
+        FunctionTimer.builder("ftp.pool.borrow", pool, p -> p.stats().getBorrows(), p -> p.stats().getAvgBorrowMillis() * p.stats().getBorrows(),
+                TimeUnit.MILLISECONDS).tags(tags).description("从连接池借用会话耗时").register(registry);
+    }
+
+    /**
+     * 单个采集源的指标
+     */
+    private class SourceMeters {
+        private final Counter listed;
+        private final Counter skipped;
+        private final Counter downloaded;
+        private final Counter downloadFailed;
+        private final Counter decompressed;
+        private final Counter decompressFailed;
+        private final Counter downloadBytes;
+        private final Counter decompressBytes;
+        private final Timer transferTimer;
+        private final Timer decompressTimer;
+        private final Timer listTimer;
+        private final Timer cycleTimer;
+
+        /**
+         * 最近一次周期耗时(毫秒)
+         */
+        private final AtomicLong lastCycleMillis = new AtomicLong();
+        /**
+         * 当前调度间隔(毫秒)
+         */
+        private final AtomicLong intervalMillis = new AtomicLong();
+        /**
+         * 最近一次周期下载吞吐(字节/秒)
+         */
+        private final AtomicLong lastThroughput = new AtomicLong();
+
+        SourceMeters(String source) {
+            Tags tags = Tags.of("source", source);
+            listed = Counter.builder("ftp.files.listed").tags(tags).description("列出的ftp文件数").register(registry);
+            skipped = Counter.builder("ftp.files.skipped").tags(tags).description("已同步而跳过的文件数").register(registry);
+            downloaded = Counter.builder("ftp.files.downloaded").tags(tags).description("下载成功的文件数").register(registry);
+            downloadFailed = Counter.builder("ftp.files.failed").tags(tags).tag("stage", "download").description("下载失败的文件数").register(registry);
+            decompressed = Counter.builder("ftp.files.decompressed").tags(tags).description("解压成功的文件数").register(registry);
+            decompressFailed = Counter.builder("ftp.files.failed").tags(tags).tag("stage", "decompress").description("解压失败的文件数").register(registry);
+            downloadBytes = Counter.builder("ftp.bytes").tags(tags).tag("stage", "download").baseUnit("bytes").description("下载字节数").register(registry);
+            decompressBytes = Counter.builder("ftp.bytes").tags(tags).tag("stage", "decompress").baseUnit("bytes").description("解压输出字节数").register(registry);
+            transferTimer = Timer.builder("ftp.transfer").tags(tags).description("单个文件下载耗时").publishPercentileHistogram().register(registry);
+            decompressTimer = Timer.builder("ftp.decompress").tags(tags).description("单个文件解压耗时").publishPercentileHistogram().register(registry);
+            listTimer = Timer.builder("ftp.list").tags(tags).description("列出ftp目录耗时").register(registry);
+            cycleTimer = Timer.builder("ftp.cycle").tags(tags).description("下载周期耗时").publishPercentileHistogram().register(registry);
+
+            Gauge.builder("ftp.cycle.last.seconds", lastCycleMillis, v -> v.get() / 1000.0).tags(tags).description("最近一次周期耗时").register(registry);
+            Gauge.builder("ftp.cycle.last.throughput", lastThroughput, AtomicLong::get).tags(tags).baseUnit("bytes")
+                    .description("最近一次周期下载吞吐(字节/秒)").register(registry);
+            Gauge.builder("ftp.cycle.interval.seconds", intervalMillis, v -> v.get() / 1000.0).tags(tags).description("当前调度间隔").register(registry);
+            // 接近1表示周期之间几乎没有空闲, 采集能力已跟不上文件产生速度
+            Gauge.builder("ftp.cycle.utilization", this, SourceMeters::utilization).tags(tags)
+                    .description("最近一次周期耗时/(周期耗时+下一周期延迟)").register(registry);
+        }
+
+        private double utilization() {
+            long busy = lastCycleMillis.get();
+            long total = busy + intervalMillis.get();
+            return total == 0 ? 0 : (double) busy / total;
+        }
+    }
+}
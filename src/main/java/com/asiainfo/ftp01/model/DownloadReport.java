@@ -0,0 +1,61 @@
+package com.asiainfo.ftp01.model;
+
+import lombok.Data;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 一次下载周期的统计信息
+ */
+@Data
+public class DownloadReport {
+
+    /**
+     * 待下载文件数
+     */
+    private int total;
+    /**
+     * 处理成功文件数; 交给异步解压阶段的文件在解压、转换完成后才确定, 失败时由下载周期改计为失败
+     */
+    private int succeeded;
+    /**
+     * 下载失败文件数
+     */
+    private int failed;
+    /**
+     * 内容重复而跳过的文件数
+     */
+    private int duplicates;
+    /**
+     * 下载字节数
+     */
+    private long bytes;
+    /**
+     * 使用的并发会话数
+     */
+    private int sessions;
+    /**
+     * 耗时(毫秒)
+     */
+    private long elapsedMillis;
+
+    /**
+     * 吞吐量(MB/s)
+     */
+    public double getMegabytesPerSecond() {
+        if (elapsedMillis <= 0) {
+            return 0;
+        }
+        return bytes / 1024.0 / 1024.0 / (elapsedMillis / 1000.0);
+    }
+
+    /**
+     * 吞吐量(文件数/s)
+     */
+    public double getFilesPerSecond() {
+        if (elapsedMillis <= 0) {
+            return 0;
+        }
+        return succeeded / (elapsedMillis / 1000.0);
+    }
+}
@@ -0,0 +1,20 @@
+package com.asiainfo.ftp01.model;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 传输线程配置(ftp.executor)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ftp.executor")
+public class ExecutorInfo {
+    /**
+     * 列表、下载、上传线程的类型: auto(JDK 21及以上使用虚拟线程, 否则使用平台线程), virtual, platform
+     */
+    private String mode = "auto";
+}
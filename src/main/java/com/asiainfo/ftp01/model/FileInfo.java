@@ -18,9 +18,38 @@ public class FileInfo {
      * ftp文件名称
      */
     private String name;
+    /**
+     * ftp文件大小(字节)
+     */
+    private long size;
+    /**
+     * ftp文件修改时间(毫秒), 未知时为0
+     */
+    private long timestamp;
+    /**
+     * 修改时间是否只精确到分钟: LIST列出的时间为true, MLSD列出的精确时间为false
+     */
+    private boolean coarseTimestamp;
+    /**
+     * 内容指纹(摘要前8字节), 开启去重且已计算时有值
+     */
+    private Long fingerprint;
     public FileInfo(){}
     public FileInfo(String path, String name) {
         this.path = path;
         this.name = name;
     }
+
+    public FileInfo(String path, String name, long size, long timestamp) {
+        this(path, name);
+        this.size = size;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * ftp文件完整路径
+     */
+    public String getRemoteFile() {
+        return path + "/" + name;
+    }
 }
@@ -1,9 +1,12 @@
 package com.asiainfo.ftp01.model;
 
 import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+
 /**
  * @author king-pan
  * @date 2019/1/28
@@ -13,6 +16,10 @@ import org.springframework.stereotype.Component;
 @Component
 @ConfigurationProperties(prefix = "ftp.info")
 public class FtpInfo {
+    /**
+     * 采集源名称, 用于日志、指标和线程名; ftp.info作为唯一采集源时为default
+     */
+    private String name = "default";
     private String host;
     private int port = 21;
     private String username;
@@ -30,4 +37,204 @@ public class FtpInfo {
      * 解压路径
      */
     private String compressPath;
+    /**
+     * 同步索引文件, 为空时使用 本地路径/.sync-index
+     */
+    private String indexFile;
+    /**
+     * 提交日志文件, 为空时使用 本地路径/.commit-journal
+     */
+    private String journalFile;
+
+    /**
+     * 去重索引文件, 为空时使用 本地路径/.dedup-index
+     */
+    private String dedupFile;
+    /**
+     * 是否按内容去重: 大小和内容摘要与已处理文件相同时不再下载或解压
+     */
+    private boolean dedup = false;
+    /**
+     * 去重使用的摘要算法: MD5、SHA-1、SHA-256; 服务器支持HASH(或XMD5等)命令时由服务器计算, 否则下载时计算
+     */
+    private String dedupAlgorithm = "MD5";
+
+    /**
+     * 列表方式: auto(服务器支持时使用MLSD, 否则LIST), mlsd, list
+     */
+    private String listMode = "auto";
+    /**
+     * 列表时每次解析的目录项数
+     */
+    private int listPageSize = 1000;
+    /**
+     * 列表与下载之间的待下载文件队列容量, 队列满时列表暂停
+     */
+    private int listQueueCapacity = 10000;
+
+    /**
+     * 是否边下载边解压, 开启后.gz文件直接解压到解压路径, 不经过本地下载路径
+     */
+    private boolean streamDecompress = false;
+    /**
+     * 边下载边解压时是否在本地下载路径保留原始压缩文件
+     */
+    private boolean keepRaw = false;
+
+    /**
+     * 非压缩文件下载后是否直接移动到解压路径(同一文件系统内为改名)
+     */
+    private boolean passThrough = false;
+
+    /**
+     * 解压后保留的原始压缩文件重新压缩为该格式(如pgzip、zstd、xz、bzip2), 为空时保持原格式
+     */
+    private String archiveCodec;
+
+    /**
+     * 输出文件在解压路径下的分区目录模板, 如{date}/{hour}/{device}, 为空时直接放在解压路径下.
+     * 占位符取routePattern中的同名分组, 没有该分组时date(yyyyMMdd)、hour(HH)取ftp文件修改时间, source取采集源名称
+     */
+    private String routePath;
+    /**
+     * 匹配文件名的正则表达式, 用命名分组提取分区字段, 如(?<device>[^_]+)_(?<date>\d{8})(?<hour>\d{2})
+     */
+    private String routePattern;
+    /**
+     * 大于0时超过该大小(字节)的输出文件按行切分为多个文件, 并行写出
+     */
+    private long splitSize = 0;
+    /**
+     * 并行拷贝切分段的线程数, 小于等于0时使用CPU核数
+     */
+    private int splitThreads = 0;
+
+    /**
+     * 解压线程数, 小于等于0时使用CPU核数
+     */
+    private int decompressThreads = 0;
+    /**
+     * 等待解压的文件队列容量, 队列满时下载线程等待
+     */
+    private int decompressQueueCapacity = 64;
+
+    /**
+     * 下载完成后对ftp源文件的处理: keep(保留), delete(删除), move(改名到完成目录)
+     */
+    private PostAction postAction = PostAction.KEEP;
+    /**
+     * 完成目录, 相对路径时位于ftp路径之下; 列表时跳过该目录
+     */
+    private String doneDirectory = "done";
+    /**
+     * 保留天数, 大于0时已同步且修改时间早于该天数的ftp文件被删除(keep方式)
+     */
+    private int retentionDays = 0;
+    /**
+     * 每批流水线发送的删除、改名命令数
+     */
+    private int postActionBatchSize = 100;
+
+    /**
+     * 并发下载会话数
+     */
+    private int concurrency = 4;
+    /**
+     * ftp服务器允许的最大会话数, 并发下载会话数不会超过该值
+     */
+    private int maxSessions = 8;
+
+    /**
+     * 连接池启动时预热及保持的最小空闲会话数
+     */
+    private int poolMinIdle = 1;
+    /**
+     * 空闲会话最长保留时间(毫秒), 超过后由回收线程关闭
+     */
+    private long poolMaxIdleMillis = 5 * 60 * 1000L;
+    /**
+     * 空闲超过该时间(毫秒)的会话在借出前先发送NOOP校验
+     */
+    private long poolValidateIdleMillis = 30 * 1000L;
+    /**
+     * 借用会话的最长等待时间(毫秒)
+     */
+    private long poolBorrowTimeoutMillis = 60 * 1000L;
+
+    /**
+     * 建立控制连接的超时时间(毫秒), 0为不超时
+     */
+    private int connectTimeoutMillis = 30 * 1000;
+    /**
+     * 控制连接读取应答的超时时间(毫秒), 0为不超时; 登录、NOOP校验以及传输结束后等待应答都受其限制
+     */
+    private int soTimeoutMillis = 60 * 1000;
+    /**
+     * 数据连接(下载、上传和目录列表)读取数据的超时时间(毫秒), 0为不超时; 服务器停止发送数据超过该时间后传输失败并按重试策略处理
+     */
+    private int dataTimeoutMillis = 60 * 1000;
+
+    /**
+     * 该采集源的下载速率上限(字节/秒), 0为不限速; 与全局上限(ftp.throttle)同时生效
+     */
+    private long maxBytesPerSecond = 0;
+    /**
+     * 该采集源每秒开始下载的文件数上限, 0为不限制
+     */
+    private long maxFilesPerSecond = 0;
+
+    /**
+     * FTPClient传输流缓冲区大小(字节), 0为commons-net默认值; 只用于ASCII传输和FTPClient自带的retrieveFile,
+     * 二进制下载、上传使用BufferPool中线程内复用的缓冲区
+     */
+    private int bufferSize = 0;
+    /**
+     * 数据连接的socket收发缓冲区大小(字节), 0为系统默认值
+     */
+    private int socketBufferSize = 0;
+
+    /**
+     * 该采集源的调度配置, 为空时使用ftp.quartz
+     */
+    private ScheduleInfo schedule;
+
+    /**
+     * 完成目录路径, 相对路径时与ftp路径的形式一致
+     */
+    public String getDonePath() {
+        if (doneDirectory.startsWith("/")) {
+            return doneDirectory;
+        }
+        return remotePath + "/" + doneDirectory;
+    }
+
+    /**
+     * 同步索引文件路径
+     */
+    public String getIndexFile() {
+        if (StringUtils.isBlank(indexFile)) {
+            return localPath + File.separator + ".sync-index";
+        }
+        return indexFile;
+    }
+
+    /**
+     * 提交日志文件路径
+     */
+    public String getJournalFile() {
+        if (StringUtils.isBlank(journalFile)) {
+            return localPath + File.separator + ".commit-journal";
+        }
+        return journalFile;
+    }
+
+    /**
+     * 去重索引文件路径
+     */
+    public String getDedupFile() {
+        if (StringUtils.isBlank(dedupFile)) {
+            return localPath + File.separator + ".dedup-index";
+        }
+        return dedupFile;
+    }
 }
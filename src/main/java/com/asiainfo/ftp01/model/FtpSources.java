@@ -0,0 +1,23 @@
+package com.asiainfo.ftp01.model;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 多个ftp采集源配置(ftp.sources), 每项与ftp.info的配置项相同; 未配置时以ftp.info作为唯一采集源
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ftp")
+public class FtpSources {
+    /**
+     * 采集源列表
+     */
+    private List<FtpInfo> sources = new ArrayList<>();
+}
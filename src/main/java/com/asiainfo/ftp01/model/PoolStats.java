@@ -0,0 +1,65 @@
+package com.asiainfo.ftp01.model;
+
+import lombok.Data;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description ftp连接池统计信息
+ */
+@Data
+public class PoolStats {
+
+    /**
+     * 最大会话数
+     */
+    private int maxSize;
+    /**
+     * 当前会话数(借出+空闲)
+     */
+    private int size;
+    /**
+     * 当前空闲会话数
+     */
+    private int idle;
+    /**
+     * 当前借出会话数
+     */
+    private int active;
+    /**
+     * 累计创建会话数
+     */
+    private long created;
+    /**
+     * 累计销毁会话数
+     */
+    private long destroyed;
+    /**
+     * NOOP校验失败次数
+     */
+    private long validationFailures;
+    /**
+     * 累计借用次数
+     */
+    private long borrows;
+    /**
+     * 平均借用耗时(毫秒)
+     */
+    private double avgBorrowMillis;
+    /**
+     * 最大借用耗时(毫秒)
+     */
+    private double maxBorrowMillis;
+    /**
+     * 累计归还次数
+     */
+    private long returns;
+    /**
+     * 平均归还耗时(毫秒)
+     */
+    private double avgReturnMillis;
+    /**
+     * 建立会话(连接+登录)累计耗时(纳秒)
+     */
+    private long connectNanos;
+}
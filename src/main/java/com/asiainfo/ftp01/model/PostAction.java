@@ -0,0 +1,21 @@
+package com.asiainfo.ftp01.model;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 文件下载完成后对ftp服务器上源文件的处理方式
+ */
+public enum PostAction {
+    /**
+     * 保留, 配置了保留天数时超过保留期后删除
+     */
+    KEEP,
+    /**
+     * 删除
+     */
+    DELETE,
+    /**
+     * 改名到完成目录
+     */
+    MOVE
+}
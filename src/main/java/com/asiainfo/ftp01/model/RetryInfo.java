@@ -0,0 +1,36 @@
+package com.asiainfo.ftp01.model;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 下载重试配置(ftp.retry): 暂时性失败在本周期内退避重试, 多次失败的文件隔离
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ftp.retry")
+public class RetryInfo {
+    /**
+     * 单个文件在一个周期内的最多下载次数(含首次)
+     */
+    private int maxAttempts = 3;
+    /**
+     * 首次重试的退避时间(毫秒)
+     */
+    private long initialBackoffMillis = 1000L;
+    /**
+     * 最长退避时间(毫秒)
+     */
+    private long maxBackoffMillis = 30 * 1000L;
+    /**
+     * 退避时间倍数
+     */
+    private double backoffMultiplier = 2.0;
+    /**
+     * 文件连续失败的周期数达到该值后隔离, 不再下载, 直到文件变化或手工解除; 0为不隔离
+     */
+    private int quarantineAfter = 5;
+}
@@ -0,0 +1,40 @@
+package com.asiainfo.ftp01.model;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 下载周期调度配置: 有新文件时按最小间隔轮询, 空闲时按倍数退避到最大间隔
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ftp.quartz")
+public class ScheduleInfo {
+    /**
+     * 是否自动调度下载周期
+     */
+    private boolean enabled = true;
+    /**
+     * 启动后首次执行的延迟(毫秒), 默认启动即执行, 补齐停机期间的文件
+     */
+    private long initialDelayMillis = 0;
+    /**
+     * 最小轮询间隔(毫秒), 上一周期有新文件时使用
+     */
+    private long minIntervalMillis = 60 * 1000L;
+    /**
+     * 最大轮询间隔(毫秒), 空闲退避的上限
+     */
+    private long maxIntervalMillis = 10 * 60 * 1000L;
+    /**
+     * 空闲时间隔的增长倍数
+     */
+    private double backoffMultiplier = 2.0;
+    /**
+     * 已不再使用: 原先的固定cron触发改为上述自适应间隔, 仍配置时启动日志给出警告, 该值被忽略
+     */
+    private String cron;
+}
@@ -0,0 +1,57 @@
+package com.asiainfo.ftp01.model;
+
+import lombok.Data;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 流水线处理阶段统计信息
+ */
+@Data
+public class StageStats {
+
+    /**
+     * 阶段名称
+     */
+    private String name;
+    /**
+     * 工作线程数
+     */
+    private int workers;
+    /**
+     * 队列容量
+     */
+    private int capacity;
+    /**
+     * 当前排队任务数
+     */
+    private int queueDepth;
+    /**
+     * 当前处理中任务数
+     */
+    private int running;
+    /**
+     * 累计完成任务数
+     */
+    private long completed;
+    /**
+     * 累计失败任务数
+     */
+    private long failed;
+    /**
+     * 平均排队耗时(毫秒)
+     */
+    private double avgWaitMillis;
+    /**
+     * 平均处理耗时(毫秒)
+     */
+    private double avgProcessMillis;
+    /**
+     * 最大处理耗时(毫秒)
+     */
+    private double maxProcessMillis;
+    /**
+     * 队列满时提交方累计阻塞时间(毫秒)
+     */
+    private long blockedMillis;
+}
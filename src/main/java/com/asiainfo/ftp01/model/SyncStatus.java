@@ -0,0 +1,21 @@
+package com.asiainfo.ftp01.model;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 文件同步状态
+ */
+public enum SyncStatus {
+    /**
+     * 已下载
+     */
+    DOWNLOADED,
+    /**
+     * 下载或处理失败, 下个周期重试
+     */
+    FAILED,
+    /**
+     * 多个周期连续失败, 已隔离, 文件变化或手工解除前不再下载
+     */
+    QUARANTINED
+}
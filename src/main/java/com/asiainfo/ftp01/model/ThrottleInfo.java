@@ -0,0 +1,24 @@
+package com.asiainfo.ftp01.model;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 全局限速配置(ftp.throttle), 所有采集源的下载共用; 运行时可通过/actuator/throttle调整
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ftp.throttle")
+public class ThrottleInfo {
+    /**
+     * 全局下载速率上限(字节/秒), 0为不限速
+     */
+    private long maxBytesPerSecond = 0;
+    /**
+     * 全局每秒开始下载的文件数上限, 0为不限制
+     */
+    private long maxFilesPerSecond = 0;
+}
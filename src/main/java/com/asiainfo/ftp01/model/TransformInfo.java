@@ -0,0 +1,67 @@
+package com.asiainfo.ftp01.model;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 记录转换配置(ftp.transform): 解压后的文本按行解析为记录, 过滤、投影后写成二进制格式
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ftp.transform")
+public class TransformInfo {
+    /**
+     * 是否开启记录转换
+     */
+    private boolean enabled = false;
+    /**
+     * 文本编码
+     */
+    private String charset = "UTF-8";
+    /**
+     * 字段分隔符
+     */
+    private String delimiter = ",";
+    /**
+     * 保留的字段序号(从0开始)及顺序, 为空时保留全部字段
+     */
+    private List<Integer> fields = new ArrayList<>();
+    /**
+     * 字段数少于该值的行视为格式错误, 丢弃
+     */
+    private int minFields = 0;
+    /**
+     * 不为空时只保留能匹配该正则表达式的行
+     */
+    private String include;
+    /**
+     * 依次使用的RecordFilter名称
+     */
+    private List<String> filters = new ArrayList<>();
+    /**
+     * 输出格式: rows(逐条记录, 长度前缀), columns(按块列式存放)
+     */
+    private String format = "rows";
+    /**
+     * columns格式每块的记录数
+     */
+    private int blockRecords = 4096;
+    /**
+     * 输出文件后缀
+     */
+    private String extension = ".rec";
+    /**
+     * 是否保留转换前的文本文件; 不保留且不切分时直接从下载的压缩文件解压转换, 不写出文本文件
+     */
+    private boolean keepText = false;
+    /**
+     * 转换线程数, 小于等于0时使用CPU核数
+     */
+    private int parallelism = 0;
+}
@@ -0,0 +1,47 @@
+package com.asiainfo.ftp01.model;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 下游ftp上传配置(ftp.upload): 解压后或重新压缩后的文件上传到下游ftp服务器
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ftp.upload")
+public class UploadInfo {
+    /**
+     * 是否开启上传
+     */
+    private boolean enabled = false;
+    /**
+     * 下游ftp服务器, 配置项与ftp.info相同(host、remotePath、concurrency、maxSessions、连接池及缓冲区), remotePath必须配置
+     */
+    private FtpInfo target = defaultTarget();
+    /**
+     * 是否按采集源名称分子目录上传
+     */
+    private boolean sourceDirectory = false;
+    /**
+     * 配置了archiveCodec时是否上传重新压缩后的文件, 否则上传解压后的文件
+     */
+    private boolean archive = false;
+    /**
+     * 上传过程中使用的临时文件后缀, 上传完成后改名为正式文件名
+     */
+    private String tempSuffix = ".tmp";
+    /**
+     * 待上传文件记录, 进程重启后继续上传其中的文件
+     */
+    private String pendingFile = ".upload-pending";
+
+    private static FtpInfo defaultTarget() {
+        FtpInfo target = new FtpInfo();
+        target.setName("upload");
+        target.setSocketBufferSize(1024 * 1024);
+        return target;
+    }
+}
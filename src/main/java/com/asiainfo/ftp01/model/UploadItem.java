@@ -0,0 +1,28 @@
+package com.asiainfo.ftp01.model;
+
+import lombok.Data;
+
+import java.io.File;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 待上传的本地文件
+ */
+@Data
+public class UploadItem {
+
+    /**
+     * 文件所属采集源名称
+     */
+    private String source;
+    /**
+     * 本地文件
+     */
+    private File file;
+
+    public UploadItem(String source, File file) {
+        this.source = source;
+        this.file = file;
+    }
+}
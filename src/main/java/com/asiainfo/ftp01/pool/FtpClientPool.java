@@ -0,0 +1,317 @@
+package com.asiainfo.ftp01.pool;
+
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.PoolStats;
+import com.asiainfo.ftp01.utils.FtpUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 有界的ftp会话池, 借出已登录的FTPClient, 空闲会话借出前NOOP校验, 后台线程回收空闲过久或已断开的会话
+ */
+@Slf4j
+public class FtpClientPool implements Closeable {
+
+    private final FtpInfo ftpInfo;
+
+    private final FtpUtils ftpUtils;
+
+    private final int maxSize;
+
+    /**
+     * 借出的会话以及取出校验中的空闲会话各占一个名额; 只有持有名额时才从空闲队列取出会话,
+     * 借用时空闲队列为空说明其余会话都持有名额, 新建会话后借出+空闲的会话总数仍不超过maxSize
+     */
+    private final Semaphore permits;
+
+    /**
+     * 空闲会话, 头部为最近归还的会话
+     */
+    private final LinkedBlockingDeque<IdleClient> idle = new LinkedBlockingDeque<>();
+
+    /**
+     * 借出中的会话
+     */
+    private final Map<FTPClient, Boolean> active = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong borrowNanos = new AtomicLong();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final AtomicLong returns = new AtomicLong();
+    private final AtomicLong returnNanos = new AtomicLong();
+    private final AtomicLong connectNanos = new AtomicLong();
+
+    /**
+     * 登录后的默认目录, 用于把相对路径转换为绝对路径
+     */
+    private volatile String homeDirectory;
+
+    private volatile boolean closed;
+
+    public FtpClientPool(FtpInfo ftpInfo, FtpUtils ftpUtils) {
+        this.ftpInfo = ftpInfo;
+        this.ftpUtils = ftpUtils;
+        this.maxSize = Math.max(1, ftpInfo.getMaxSessions());
+        this.permits = new Semaphore(maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ftp-pool-evictor-" + ftpInfo.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000L, Math.min(ftpInfo.getPoolMaxIdleMillis(), ftpInfo.getPoolValidateIdleMillis()));
+        evictor.scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 预热连接池, 建立poolMinIdle个空闲会话; 失败只记录日志, 不影响启动
+     */
+    public void prewarm() {
+        int count = Math.min(ftpInfo.getPoolMinIdle(), maxSize);
+        List<FTPClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                clients.add(borrow());
+            }
+            log.info("ftp连接池预热完成,服务器:{},会话数:{}", ftpInfo.getHost(), clients.size());
+        } catch (IOException e) {
+            log.warn("ftp连接池预热失败,服务器:{},原因:{}", ftpInfo.getHost(), e.getMessage());
+        } finally {
+            clients.forEach(this::release);
+        }
+    }
+
+    /**
+     * 借用一个已登录的会话, 使用完毕后必须调用release或invalidate
+     *
+     * @return ftp连接
+     * @throws IOException 等待超时或建立会话失败
+     */
+    public FTPClient borrow() throws IOException {
+        if (closed) {
+            throw new IOException("ftp连接池已关闭");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(ftpInfo.getPoolBorrowTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                throw new PoolTimeoutException("获取ftp会话超时,服务器:" + ftpInfo.getHost() + ",最大会话数:" + maxSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("获取ftp会话被中断", e);
+        }
+        try {
+            FTPClient client = takeIdle();
+            if (client == null) {
+                client = create();
+            }
+            active.put(client, Boolean.TRUE);
+            long elapsed = System.nanoTime() - start;
+            borrows.incrementAndGet();
+            borrowNanos.addAndGet(elapsed);
+            maxBorrowNanos.accumulateAndGet(elapsed, Math::max);
+            return client;
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 归还会话, 已断开的会话直接销毁
+     *
+     * @param client ftp连接
+     */
+    public void release(FTPClient client) {
+        if (client == null || active.remove(client) == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (closed || !client.isConnected()) {
+            destroy(client);
+        } else {
+            idle.offerFirst(new IdleClient(client, System.currentTimeMillis()));
+        }
+        permits.release();
+        returns.incrementAndGet();
+        returnNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * 是否有线程正在等待会话
+     */
+    public boolean hasWaiters() {
+        return permits.hasQueuedThreads();
+    }
+
+    /**
+     * 销毁出错的会话, 释放其占用的名额. 不发送QUIT直接断开: 传输超时后服务器可能仍阻塞在上一条命令上, 等待QUIT应答会再占用一个读超时
+     *
+     * @param client ftp连接
+     */
+    public void invalidate(FTPClient client) {
+        if (client == null || active.remove(client) == null) {
+            return;
+        }
+        ftpUtils.abortSession(client);
+        size.decrementAndGet();
+        destroyed.incrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * 把相对登录目录的ftp路径转换为绝对路径, 以便下载时不再切换工作目录
+     *
+     * @param path ftp路径
+     * @return 绝对路径; 登录目录未知时原样返回
+     */
+    public String resolve(String path) {
+        String home = homeDirectory;
+        if (path.startsWith("/") || home == null) {
+            return path;
+        }
+        return home.endsWith("/") ? home + path : home + "/" + path;
+    }
+
+    /**
+     * 连接池统计信息
+     */
+    public PoolStats stats() {
+        PoolStats stats = new PoolStats();
+        stats.setMaxSize(maxSize);
+        stats.setSize(size.get());
+        stats.setIdle(idle.size());
+        stats.setActive(active.size());
+        stats.setCreated(created.get());
+        stats.setDestroyed(destroyed.get());
+        stats.setValidationFailures(validationFailures.get());
+        long borrowCount = borrows.get();
+        stats.setBorrows(borrowCount);
+        stats.setAvgBorrowMillis(borrowCount == 0 ? 0 : borrowNanos.get() / 1e6 / borrowCount);
+        stats.setMaxBorrowMillis(maxBorrowNanos.get() / 1e6);
+        long returnCount = returns.get();
+        stats.setReturns(returnCount);
+        stats.setAvgReturnMillis(returnCount == 0 ? 0 : returnNanos.get() / 1e6 / returnCount);
+        stats.setConnectNanos(connectNanos.get());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        IdleClient idleClient;
+        while ((idleClient = idle.pollFirst()) != null) {
+            destroy(idleClient.client);
+        }
+        log.info("ftp连接池已关闭,服务器:{},统计:{}", ftpInfo.getHost(), stats());
+    }
+
+    /**
+     * 取出一个可用的空闲会话, 空闲较久的会话先用NOOP校验
+     */
+    private FTPClient takeIdle() {
+        IdleClient idleClient;
+        while ((idleClient = idle.pollFirst()) != null) {
+            long idleMillis = System.currentTimeMillis() - idleClient.since;
+            if (idleMillis < ftpInfo.getPoolValidateIdleMillis() || validate(idleClient.client)) {
+                return idleClient.client;
+            }
+            destroy(idleClient.client);
+        }
+        return null;
+    }
+
+    private FTPClient create() throws IOException {
+        long start = System.nanoTime();
+        FTPClient client = ftpUtils.openSession(ftpInfo);
+        connectNanos.addAndGet(System.nanoTime() - start);
+        if (homeDirectory == null) {
+            homeDirectory = client.printWorkingDirectory();
+            log.info("ftp登录目录:{}", homeDirectory);
+        }
+        size.incrementAndGet();
+        created.incrementAndGet();
+        log.info("新建ftp会话,服务器:{},当前会话数:{}", ftpInfo.getHost(), size.get());
+        return client;
+    }
+
+    private boolean validate(FTPClient client) {
+        try {
+            if (client.isConnected() && client.sendNoOp()) {
+                return true;
+            }
+        } catch (IOException e) {
+            log.debug("ftp会话NOOP校验异常:{}", e.getMessage());
+        }
+        validationFailures.incrementAndGet();
+        return false;
+    }
+
+    private void destroy(FTPClient client) {
+        ftpUtils.closeSession(client);
+        size.decrementAndGet();
+        destroyed.incrementAndGet();
+    }
+
+    /**
+     * 回收空闲过久的会话, 对保留的会话发送NOOP保活, 保留不少于poolMinIdle个.
+     * 校验中的会话占用名额, 名额都已借出时本轮不再校验, 空闲会话很快会被借用
+     */
+    private void evict() {
+        try {
+            int count = idle.size();
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < count && permits.tryAcquire(); i++) {
+                try {
+                    IdleClient idleClient = idle.pollLast();
+                    if (idleClient == null) {
+                        break;
+                    }
+                    boolean expired = now - idleClient.since > ftpInfo.getPoolMaxIdleMillis()
+                            && idle.size() >= ftpInfo.getPoolMinIdle();
+                    if (expired || !validate(idleClient.client)) {
+                        destroy(idleClient.client);
+                    } else {
+                        idle.offerFirst(idleClient);
+                    }
+                } finally {
+                    permits.release();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("ftp连接池回收异常", e);
+        }
+    }
+
+    private static class IdleClient {
+        private final FTPClient client;
+        private final long since;
+
+        IdleClient(FTPClient client, long since) {
+            this.client = client;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.asiainfo.ftp01.pool;
+
+import java.io.IOException;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 等待ftp会话超时: 会话都被其他任务占用, 与服务器无关, 稍后重新获取即可
+ */
+public class PoolTimeoutException extends IOException {
+
+    public PoolTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,52 @@
+package com.asiainfo.ftp01.source;
+
+import com.asiainfo.ftp01.model.SyncStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 隔离文件: GET /actuator/quarantine 查看各采集源隔离的文件;
+ * DELETE /actuator/quarantine/{采集源} 解除该采集源的全部隔离, 下个周期重新下载
+ */
+@Slf4j
+@Component
+@Endpoint(id = "quarantine")
+public class QuarantineEndpoint {
+
+    @Autowired
+    private SourceRegistry sourceRegistry;
+
+    @ReadOperation
+    public Map<String, List<String>> quarantined() {
+        Map<String, List<String>> quarantined = new LinkedHashMap<>();
+        for (SourceContext source : sourceRegistry.getSources()) {
+            quarantined.put(source.getName(), source.getSyncIndex().list(SyncStatus.QUARANTINED));
+        }
+        return quarantined;
+    }
+
+    @DeleteOperation
+    public Map<String, Integer> release(@Selector String source) throws IOException {
+        SourceContext context = sourceRegistry.get(source);
+        if (context == null) {
+            return null;
+        }
+        int released = context.getSyncIndex().release();
+        log.info("采集源:{},解除隔离文件数:{}", source, released);
+        Map<String, Integer> result = new LinkedHashMap<>();
+        result.put("released", released);
+        return result;
+    }
+}
@@ -0,0 +1,120 @@
+package com.asiainfo.ftp01.source;
+
+import com.asiainfo.ftp01.index.CommitJournal;
+import com.asiainfo.ftp01.index.DedupIndex;
+import com.asiainfo.ftp01.index.SyncIndex;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.ScheduleInfo;
+import com.asiainfo.ftp01.pool.FtpClientPool;
+import com.asiainfo.ftp01.throttle.TokenBucket;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 单个采集源的运行时状态: 配置、独立的连接池和同步索引, 以及周期执行标记.
+ * 列表、下载、解压等组件无状态, 通过该对象区分采集源
+ */
+@Getter
+public class SourceContext implements Closeable {
+
+    private final FtpInfo ftpInfo;
+
+    private final ScheduleInfo schedule;
+
+    private final FtpClientPool pool;
+
+    private final SyncIndex syncIndex;
+
+    private final CommitJournal journal;
+
+    /**
+     * 内容去重索引, 未开启去重时为null
+     */
+    private final DedupIndex dedupIndex;
+
+    /**
+     * 该采集源的下载字节数限速
+     */
+    private final TokenBucket byteBucket;
+
+    /**
+     * 该采集源的文件数限速
+     */
+    private final TokenBucket fileBucket;
+
+    /**
+     * 各ftp文件连续失败的周期数, 达到上限后隔离
+     */
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+
+    /**
+     * 正在执行的周期标记, 保证同一采集源任何时刻只有一个下载周期
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 该采集源在解压阶段可占用的名额, 避免文件多的采集源占满解压队列
+     */
+    @Setter
+    private Semaphore stageSlots;
+
+    /**
+     * 该采集源已提交到解压阶段但未完成的任务数
+     */
+    private final AtomicInteger stagePending = new AtomicInteger();
+
+    /**
+     * 服务器是否支持MLSD, 首次列表时探测
+     */
+    @Setter
+    private volatile Boolean mlsd;
+
+    /**
+     * 服务器计算摘要的命令(HASH、XMD5等), 不支持时为空串, 首次去重时探测
+     */
+    @Setter
+    private volatile String digestCommand;
+
+    public SourceContext(FtpInfo ftpInfo, ScheduleInfo schedule, FtpClientPool pool, SyncIndex syncIndex, CommitJournal journal, DedupIndex dedupIndex) {
+        this.ftpInfo = ftpInfo;
+        this.schedule = schedule;
+        this.pool = pool;
+        this.syncIndex = syncIndex;
+        this.journal = journal;
+        this.dedupIndex = dedupIndex;
+        this.byteBucket = new TokenBucket(ftpInfo.getMaxBytesPerSecond());
+        this.fileBucket = new TokenBucket(ftpInfo.getMaxFilesPerSecond());
+    }
+
+    public String getName() {
+        return ftpInfo.getName();
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.close();
+        try {
+            journal.close();
+            if (dedupIndex != null) {
+                dedupIndex.close();
+            }
+        } finally {
+            syncIndex.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ftpInfo.getName() + "(" + ftpInfo.getHost() + ":" + ftpInfo.getPort() + "/" + ftpInfo.getRemotePath() + ")";
+    }
+}
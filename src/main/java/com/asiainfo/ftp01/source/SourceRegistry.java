@@ -0,0 +1,136 @@
+package com.asiainfo.ftp01.source;
+
+import com.asiainfo.ftp01.codec.Codecs;
+import com.asiainfo.ftp01.engine.DecompressStage;
+import com.asiainfo.ftp01.index.CommitJournal;
+import com.asiainfo.ftp01.index.DedupIndex;
+import com.asiainfo.ftp01.index.SyncIndex;
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.FtpSources;
+import com.asiainfo.ftp01.model.ScheduleInfo;
+import com.asiainfo.ftp01.pool.FtpClientPool;
+import com.asiainfo.ftp01.utils.FtpUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 采集源注册表: 按ftp.sources(未配置时为ftp.info)创建各采集源的连接池、同步索引和提交日志, 应用关闭时统一释放
+ */
+@Slf4j
+@Component
+public class SourceRegistry {
+
+    @Autowired
+    private FtpInfo ftpInfo;
+
+    @Autowired
+    private FtpSources ftpSources;
+
+    @Autowired
+    private ScheduleInfo scheduleInfo;
+
+    @Autowired
+    private FtpUtils ftpUtils;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired
+    private DecompressStage decompressStage;
+
+    private final List<SourceContext> sources = new ArrayList<>();
+
+    @PostConstruct
+    public void start() throws IOException {
+        List<FtpInfo> infos = ftpSources.getSources().isEmpty() ? Collections.singletonList(ftpInfo) : ftpSources.getSources();
+        Set<String> names = new HashSet<>();
+        Set<String> stateFiles = new HashSet<>();
+        for (FtpInfo info : infos) {
+            if (!names.add(info.getName())) {
+                throw new IllegalStateException("采集源名称重复:" + info.getName());
+            }
+            String indexFile = new File(info.getIndexFile()).getAbsolutePath();
+            if (!stateFiles.add(indexFile)) {
+                throw new IllegalStateException("采集源" + info.getName() + "的同步索引文件与其他采集源相同:" + indexFile);
+            }
+            String journalFile = new File(info.getJournalFile()).getAbsolutePath();
+            if (!stateFiles.add(journalFile)) {
+                throw new IllegalStateException("采集源" + info.getName() + "的提交日志文件与其他采集源相同:" + journalFile);
+            }
+            String dedupFile = new File(info.getDedupFile()).getAbsolutePath();
+            if (info.isDedup() && !stateFiles.add(dedupFile)) {
+                throw new IllegalStateException("采集源" + info.getName() + "的去重索引文件与其他采集源相同:" + dedupFile);
+            }
+            try {
+                // 归档格式在启动时校验, 只支持解压的格式(如lz4)不会到解压阶段才失败
+                Codecs.forCompression(info.getArchiveCodec());
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                throw new IllegalStateException("采集源" + info.getName() + "的归档格式不可用:" + e.getMessage(), e);
+            }
+            ScheduleInfo schedule = info.getSchedule() == null ? scheduleInfo : info.getSchedule();
+            SyncIndex syncIndex = new SyncIndex(new File(indexFile));
+            CommitJournal journal = new CommitJournal(new File(journalFile));
+            // 清理上次运行中断时未完成的文件, 这些文件在下个周期重新处理
+            int recovered = journal.recover(syncIndex);
+            if (recovered > 0) {
+                log.info("采集源:{},清理未完成的文件数:{}", info.getName(), recovered);
+            }
+            DedupIndex dedupIndex = info.isDedup() ? new DedupIndex(new File(dedupFile)) : null;
+            FtpClientPool pool = new FtpClientPool(info, ftpUtils);
+            SourceContext source = new SourceContext(info, schedule, pool, syncIndex, journal, dedupIndex);
+            sources.add(source);
+            metrics.bindSource(source.getName(), pool);
+            log.info("注册采集源:{}", source);
+        }
+        decompressStage.allocate(sources);
+        // 各采集源并行预热, 某个服务器连接缓慢不会拖慢其他采集源
+        sources.parallelStream().forEach(source -> source.getPool().prewarm());
+    }
+
+    @PreDestroy
+    public void close() {
+        for (SourceContext source : sources) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                log.error("关闭采集源失败:" + source, e);
+            }
+        }
+    }
+
+    /**
+     * 全部采集源
+     */
+    public List<SourceContext> getSources() {
+        return Collections.unmodifiableList(sources);
+    }
+
+    /**
+     * 按名称查找采集源
+     *
+     * @param name 采集源名称
+     * @return 采集源, 不存在时返回null
+     */
+    public SourceContext get(String name) {
+        for (SourceContext source : sources) {
+            if (source.getName().equals(name)) {
+                return source;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,138 @@
+package com.asiainfo.ftp01.task;
+
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.DownloadReport;
+import com.asiainfo.ftp01.model.ScheduleInfo;
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.source.SourceRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 自适应下载调度: 每个采集源一条独立的调度线程, 每个周期结束后才安排该采集源的下一个周期,
+ * 周期之间不会重叠, 某个采集源卡住或缓慢时不影响其他采集源.
+ * 上一周期有新文件时按最小间隔轮询, 周期耗时已超过最小间隔时立即执行下一周期追赶积压;
+ * 没有新文件或ftp不可用时间隔按倍数增长, 直到最大间隔. 应用启动完成(web服务、各阶段均已就绪)后才开始调度
+ */
+@Slf4j
+@Component
+public class AdaptiveScheduler {
+
+    @Autowired
+    private SourceRegistry sourceRegistry;
+
+    @Autowired
+    private DownLoadTask downLoadTask;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    private final List<Lane> lanes = new ArrayList<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (SourceContext source : sourceRegistry.getSources()) {
+            if (StringUtils.isNotBlank(source.getSchedule().getCron())) {
+                log.warn("采集源:{},ftp.quartz.cron已不再使用,忽略配置的[{}],改为按minIntervalMillis/maxIntervalMillis/backoffMultiplier自适应调度",
+                        source.getName(), source.getSchedule().getCron());
+            }
+            if (!source.getSchedule().isEnabled()) {
+                log.info("采集源:{},下载周期自动调度未开启", source.getName());
+                continue;
+            }
+            Lane lane = new Lane(source);
+            lanes.add(lane);
+            lane.schedule(source.getSchedule().getInitialDelayMillis());
+            log.info("采集源:{},下载周期调度启动,最小间隔:{}ms,最大间隔:{}ms", source.getName(),
+                    source.getSchedule().getMinIntervalMillis(), source.getSchedule().getMaxIntervalMillis());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Lane lane : lanes) {
+            lane.executor.shutdownNow();
+        }
+        for (Lane lane : lanes) {
+            if (!lane.executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("采集源:{},下载周期调度关闭超时", lane.source.getName());
+            }
+        }
+    }
+
+    /**
+     * 单个采集源的调度线程及其退避状态
+     */
+    private class Lane {
+        private final SourceContext source;
+        private final ScheduledExecutorService executor;
+
+        /**
+         * 当前空闲退避间隔(毫秒), 只在该采集源的调度线程中读写
+         */
+        private long idleInterval;
+
+        Lane(SourceContext source) {
+            this.source = source;
+            this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ftp-scheduler-" + source.getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.idleInterval = source.getSchedule().getMinIntervalMillis();
+        }
+
+        private void schedule(long delay) {
+            metrics.scheduled(source.getName(), delay);
+            executor.schedule(this::runCycle, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private void runCycle() {
+            long delay = source.getSchedule().getMaxIntervalMillis();
+            try {
+                long start = System.currentTimeMillis();
+                DownloadReport report = downLoadTask.download(source);
+                delay = nextDelay(report, System.currentTimeMillis() - start);
+            } catch (Throwable e) {
+                log.error("采集源:" + source.getName() + ",下载周期执行异常", e);
+            } finally {
+                if (!executor.isShutdown()) {
+                    log.info("采集源:{},下一个下载周期将在{}ms后执行", source.getName(), delay);
+                    schedule(delay);
+                }
+            }
+        }
+
+        /**
+         * 根据本周期结果计算下一周期的延迟
+         *
+         * @param report  本周期下载统计, 周期未执行或列表失败时为null
+         * @param elapsed 本周期耗时(毫秒)
+         */
+        private long nextDelay(DownloadReport report, long elapsed) {
+            ScheduleInfo schedule = source.getSchedule();
+            long min = schedule.getMinIntervalMillis();
+            if (report != null && report.getTotal() > 0) {
+                idleInterval = min;
+                // 周期本身已超过最小间隔, 说明仍有积压, 立即开始下一周期
+                return elapsed >= min ? 0 : min - elapsed;
+            }
+            long delay = idleInterval;
+            idleInterval = Math.min(schedule.getMaxIntervalMillis(), Math.max(min, (long) (idleInterval * schedule.getBackoffMultiplier())));
+            return delay;
+        }
+    }
+}
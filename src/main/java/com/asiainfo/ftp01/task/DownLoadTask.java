@@ -1,17 +1,41 @@
 package com.asiainfo.ftp01.task;
 
+import com.asiainfo.ftp01.codec.Codecs;
+import com.asiainfo.ftp01.codec.CompressionCodec;
+import com.asiainfo.ftp01.engine.DecompressStage;
+import com.asiainfo.ftp01.engine.DownloadEngine;
+import com.asiainfo.ftp01.engine.FileFeed;
+import com.asiainfo.ftp01.engine.FileHandler;
+import com.asiainfo.ftp01.engine.OutputRouter;
+import com.asiainfo.ftp01.engine.RemoteLister;
+import com.asiainfo.ftp01.engine.ServerCleaner;
+import com.asiainfo.ftp01.engine.TransferExecutors;
+import com.asiainfo.ftp01.engine.UploadEngine;
+import com.asiainfo.ftp01.index.SyncIndex;
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.DownloadReport;
 import com.asiainfo.ftp01.model.FileInfo;
 import com.asiainfo.ftp01.model.FtpInfo;
-import com.asiainfo.ftp01.utils.FtpUtils;
-import com.asiainfo.ftp01.utils.GZipUtils;
+import com.asiainfo.ftp01.model.RetryInfo;
+import com.asiainfo.ftp01.model.SyncStatus;
+import com.asiainfo.ftp01.model.UploadInfo;
+import com.asiainfo.ftp01.model.UploadItem;
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.transform.TransformStage;
+import com.asiainfo.ftp01.utils.NioFiles;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author king-pan
@@ -23,42 +47,333 @@ import java.util.List;
 public class DownLoadTask {
 
     @Autowired
-    private FtpInfo ftpInfo;
+    private RemoteLister remoteLister;
 
     @Autowired
-    private FtpUtils ftpUtils;
+    private DownloadEngine downloadEngine;
 
-    @Scheduled(cron = "${ftp.quartz.cron}")
-    public void download() {
-        log.info("ftp路径:{},本地下载路径:{},本地解压路径:{}", ftpInfo.getRemotePath(), ftpInfo.getLocalPath(), ftpInfo.getCompressPath());
-        //创建ftp连接
-        ftpUtils.getFTPClient();
+    @Autowired
+    private DecompressStage decompressStage;
+
+    @Autowired
+    private ServerCleaner serverCleaner;
+
+    @Autowired
+    private UploadEngine uploadEngine;
+
+    @Autowired
+    private OutputRouter outputRouter;
+
+    @Autowired
+    private TransformStage transformStage;
+
+    @Autowired
+    private UploadInfo uploadInfo;
+
+    @Autowired
+    private RetryInfo retryInfo;
+
+    @Autowired
+    private TransferExecutors executors;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    /**
+     * 执行采集源的一个下载周期: 列出ftp文件, 下载未同步的文件并解压. 该采集源已有周期在执行时直接返回
+     *
+     * @param source 采集源
+     * @return 本周期下载统计, 周期未执行或列出文件失败时返回null
+     */
+    public DownloadReport download(SourceContext source) {
+        if (!source.getRunning().compareAndSet(false, true)) {
+            log.warn("采集源:{},上一个下载周期尚未结束,跳过本次执行", source.getName());
+            return null;
+        }
         try {
-            List<FileInfo> fileNameList = ftpUtils.listFiles(ftpInfo.getRemotePath());
-            for (FileInfo fileInfo : fileNameList) {
-                log.info("ftp文件信息:{}", fileInfo);
-                String localFileName = ftpInfo.getLocalPath() + File.separator + fileInfo.getName();
-                File localFile = new File(localFileName);
-                if (localFile.exists() || localFile.getName().endsWith(".verf")) {
-                    log.info("本地已存在该文件:{}，不下载", localFileName);
-                } else {
-                    ftpUtils.download(fileInfo.getPath(), fileInfo.getName(), ftpInfo.getLocalPath());
-                    if (localFile.exists() && localFile.getName().endsWith(".gz")) {
-                        log.info("开始解压文件:{},解压到:{}", localFileName, ftpInfo.getCompressPath());
-                        GZipUtils.decompress(localFile, ftpInfo.getCompressPath(), false);
+            return cycle(source);
+        } finally {
+            source.getRunning().set(false);
+        }
+    }
+
+    private DownloadReport cycle(SourceContext source) {
+        FtpInfo ftpInfo = source.getFtpInfo();
+        SyncIndex syncIndex = source.getSyncIndex();
+        log.info("采集源:{},ftp路径:{},本地下载路径:{},本地解压路径:{}", source.getName(), ftpInfo.getRemotePath(), ftpInfo.getLocalPath(), ftpInfo.getCompressPath());
+        long cycleStart = System.nanoTime();
+        DownloadReport report = null;
+        try {
+            int listThreads = RemoteLister.streamingThreads(ftpInfo);
+            int sessions = Math.max(1, Math.min(ftpInfo.getConcurrency(), ftpInfo.getMaxSessions() - listThreads));
+            // 只有一个会话名额时列表与下载轮流使用该会话, 队列不限容量, 列表不会因队列已满而等待持有会话的下载线程
+            FileFeed feed = new FileFeed(ftpInfo.getMaxSessions() > 1 ? ftpInfo.getListQueueCapacity() : Integer.MAX_VALUE);
+            // 本周期同步完成、需要在服务器上删除或改名的文件
+            List<FileInfo> cleanup = Collections.synchronizedList(new ArrayList<>());
+            // 本周期生成、需要上传到下游的文件
+            List<UploadItem> uploads = Collections.synchronizedList(new ArrayList<>());
+            AtomicReference<Exception> listError = new AtomicReference<>();
+            // 下载时已计为成功、随后在解压阶段失败的文件数
+            AtomicInteger stageFailed = new AtomicInteger();
+            Thread lister = executors.start("list-" + source.getName(), () -> list(source, listThreads, feed, cleanup, listError));
+            report = downloadEngine.download(source, feed, sessions, new FileHandler() {
+                @Override
+                public void started(FileInfo fileInfo) throws IOException {
+                    source.getJournal().begin(fileInfo, outputs(source, fileInfo));
+                }
+
+                @Override
+                public void handle(FileInfo fileInfo, File localFile) throws Exception {
+                    if (localFile.exists() && Codecs.forFileName(localFile.getName()) != null) {
+                        // 解压交给解压阶段, 下载线程继续下载下一个文件
+                        decompressStage.submit(source, () -> {
+                            try {
+                                decompress(source, fileInfo, localFile, cleanup, uploads);
+                            } catch (Exception e) {
+                                stageFailed.incrementAndGet();
+                                throw e;
+                            }
+                        });
+                    } else {
+                        File output = localFile;
+                        if (ftpInfo.isPassThrough() && localFile.exists() && localFile.getParentFile().equals(new File(ftpInfo.getLocalPath()))) {
+                            // 非压缩文件改名到解压路径, 不再拷贝
+                            output = new File(ftpInfo.getCompressPath(), localFile.getName());
+                            NioFiles.commit(localFile, output);
+                        }
+                        List<File> outputs = Collections.singletonList(output);
+                        if (output.getParentFile().equals(new File(ftpInfo.getCompressPath()))) {
+                            // 边下载边解压的文件和直接移动的文件
+                            outputs = transformStage.transform(source, fileInfo, outputRouter.route(source, fileInfo, output));
+                        }
+                        for (File file : outputs) {
+                            addUpload(source, file, uploads);
+                        }
+                        syncIndex.mark(fileInfo, SyncStatus.DOWNLOADED);
+                        source.getJournal().commit(fileInfo);
+                        remember(source, fileInfo);
+                        addCleanup(ftpInfo, fileInfo, cleanup);
                     }
                 }
+
+                @Override
+                public void duplicate(FileInfo fileInfo) throws IOException {
+                    // 内容已处理过, 记为已同步, 同样按配置处理服务器上的文件
+                    syncIndex.mark(fileInfo, SyncStatus.DOWNLOADED);
+                    source.getJournal().commit(fileInfo);
+                    remember(source, fileInfo);
+                    addCleanup(ftpInfo, fileInfo, cleanup);
+                }
+
+                @Override
+                public void failed(FileInfo fileInfo, Exception e) {
+                    try {
+                        fail(source, fileInfo);
+                    } catch (IOException ex) {
+                        log.error("写入同步索引失败:" + fileInfo.getRemoteFile(), ex);
+                    }
+                }
+            });
+            lister.join();
+            if (listError.get() != null) {
+                throw listError.get();
             }
+            decompressStage.awaitIdle(source);
+            log.info("解压阶段统计:{}", decompressStage.stats());
+            if (stageFailed.get() > 0) {
+                report.setSucceeded(report.getSucceeded() - stageFailed.get());
+                report.setFailed(report.getFailed() + stageFailed.get());
+                log.warn("采集源:{},解压阶段失败文件数:{},本周期成功:{},失败:{}", source.getName(), stageFailed.get(), report.getSucceeded(), report.getFailed());
+            }
+            uploadEngine.upload(uploads);
+            // 列表和下载会话都已归还, 服务器上的处理不与其争用会话
+            serverCleaner.clean(source, cleanup);
+            syncIndex.compactIfNeeded();
+            source.getJournal().compactIfIdle();
+        } catch (Exception e) {
+            log.error("采集源:" + source.getName() + "," + e.getMessage(), e);
+        } finally {
+            metrics.cycle(source.getName(), System.nanoTime() - cycleStart, report);
+        }
+        return report;
+    }
 
+    /**
+     * 列出ftp文件, 未同步的文件放入下载队列, 下载线程同时开始下载
+     */
+    private void list(SourceContext source, int threads, FileFeed feed, List<FileInfo> cleanup, AtomicReference<Exception> listError) {
+        FtpInfo ftpInfo = source.getFtpInfo();
+        long start = System.nanoTime();
+        AtomicLong skipped = new AtomicLong();
+        AtomicLong quarantined = new AtomicLong();
+        try {
+            long listed = remoteLister.walk(source, ftpInfo.getRemotePath(), threads, fileInfo -> {
+                if (fileInfo.getName().endsWith(".verf")) {
+                    skipped.incrementAndGet();
+                    return true;
+                }
+                if (source.getSyncIndex().isQuarantined(fileInfo)) {
+                    quarantined.incrementAndGet();
+                    skipped.incrementAndGet();
+                    return true;
+                }
+                if (isSynced(source, fileInfo)) {
+                    log.debug("文件已同步:{}，不下载", fileInfo.getRemoteFile());
+                    skipped.incrementAndGet();
+                    // 之前周期处理失败或超过保留期的文件
+                    addCleanup(ftpInfo, fileInfo, cleanup);
+                    return true;
+                }
+                log.info("ftp文件信息:{}", fileInfo);
+                return feed.accept(fileInfo);
+            });
+            log.info("采集源:{},ftp文件数:{},已同步:{},已隔离:{},待下载:{}", source.getName(), listed, skipped.get() - quarantined.get(), quarantined.get(),
+                    listed - skipped.get());
+            metrics.listed(source.getName(), (int) listed, System.nanoTime() - start);
+            metrics.skipped(source.getName(), (int) skipped.get());
         } catch (Exception e) {
-            log.error(e.getMessage(), e);
+            listError.set(e);
         } finally {
-            try {
-                ftpUtils.disconnect();
-            } catch (IOException e) {
-                log.error(e.getMessage(), e);
+            feed.close();
+        }
+    }
+
+    private void decompress(SourceContext source, FileInfo fileInfo, File localFile, List<FileInfo> cleanup, List<UploadItem> uploads) throws Exception {
+        FtpInfo ftpInfo = source.getFtpInfo();
+        SyncIndex syncIndex = source.getSyncIndex();
+        log.info("开始解压文件:{},解压到:{}", localFile.getPath(), ftpInfo.getCompressPath());
+        long start = System.nanoTime();
+        List<File> outputs;
+        try {
+            if (transformStage.isDirect(ftpInfo)) {
+                // 经解压流直接转换为记录文件, 不写出文本文件
+                File target = transformStage.transform(source, localFile, outputRouter.directory(source, fileInfo));
+                metrics.decompressed(source.getName(), target.length(), System.nanoTime() - start);
+                outputs = Collections.singletonList(target);
+            } else {
+                File target = Codecs.decompress(localFile, ftpInfo.getCompressPath(), false);
+                metrics.decompressed(source.getName(), target.length(), System.nanoTime() - start);
+                outputs = transformStage.transform(source, fileInfo, outputRouter.route(source, fileInfo, target));
+            }
+            if (StringUtils.isNotBlank(ftpInfo.getArchiveCodec())) {
+                File archive = Codecs.recompress(localFile, Codecs.forCompression(ftpInfo.getArchiveCodec()));
+                if (uploadInfo.isArchive()) {
+                    outputs = Collections.singletonList(archive);
+                }
+            }
+        } catch (Exception e) {
+            metrics.decompressFailed(source.getName());
+            fail(source, fileInfo);
+            throw e;
+        }
+        for (File output : outputs) {
+            addUpload(source, output, uploads);
+        }
+        syncIndex.mark(fileInfo, SyncStatus.DOWNLOADED);
+        source.getJournal().commit(fileInfo);
+        remember(source, fileInfo);
+        addCleanup(ftpInfo, fileInfo, cleanup);
+    }
+
+    /**
+     * 记录文件失败; 连续失败的周期数达到上限后隔离, 之后列表时跳过, 不再占用下载会话
+     */
+    private void fail(SourceContext source, FileInfo fileInfo) throws IOException {
+        int quarantineAfter = retryInfo.getQuarantineAfter();
+        int failures = source.getFailures().merge(fileInfo.getRemoteFile(), 1, Integer::sum);
+        if (quarantineAfter > 0 && failures >= quarantineAfter) {
+            source.getFailures().remove(fileInfo.getRemoteFile());
+            source.getSyncIndex().mark(fileInfo, SyncStatus.QUARANTINED);
+            metrics.quarantined(source.getName());
+            log.warn("采集源:{},文件连续{}个周期失败,已隔离:{}", source.getName(), failures, fileInfo.getRemoteFile());
+        } else {
+            source.getSyncIndex().mark(fileInfo, SyncStatus.FAILED);
+        }
+        source.getJournal().commit(fileInfo);
+    }
+
+    /**
+     * 文件处理成功后记录内容指纹, 之后改名或重新发布的同样内容不再处理
+     */
+    private void remember(SourceContext source, FileInfo fileInfo) throws IOException {
+        source.getFailures().remove(fileInfo.getRemoteFile());
+        if (source.getDedupIndex() != null && fileInfo.getFingerprint() != null) {
+            source.getDedupIndex().add(fileInfo.getSize(), fileInfo.getFingerprint());
+        }
+    }
+
+    /**
+     * 开启上传时, 本地生成的文件加入上传列表; 在标记为已同步之前记录到磁盘, 进程中断后重启仍会上传
+     */
+    private void addUpload(SourceContext source, File output, List<UploadItem> uploads) throws IOException {
+        if (uploadEngine.isEnabled() && output.exists()) {
+            uploads.add(uploadEngine.enqueue(source.getName(), output));
+        }
+    }
+
+    /**
+     * 文件已下载并落盘后, 按配置加入服务器处理列表
+     */
+    private void addCleanup(FtpInfo ftpInfo, FileInfo fileInfo, List<FileInfo> cleanup) {
+        if (serverCleaner.eligible(ftpInfo, fileInfo)) {
+            cleanup.add(fileInfo);
+        }
+    }
+
+    /**
+     * 处理一个ftp文件可能生成的本地文件: 下载文件、解压文件、直接移动的文件、分区目录中的文件、记录文件以及重新压缩的归档文件.
+     * 切分生成的文件数在切分时才确定, 由切分补充记录
+     */
+    private List<File> outputs(SourceContext source, FileInfo fileInfo) {
+        FtpInfo ftpInfo = source.getFtpInfo();
+        List<File> outputs = new ArrayList<>();
+        String name = fileInfo.getName();
+        outputs.add(new File(ftpInfo.getLocalPath(), name));
+        String output = null;
+        CompressionCodec codec = Codecs.forFileName(name);
+        if (codec != null) {
+            output = Codecs.stripExtension(name, codec);
+            CompressionCodec archive = StringUtils.isBlank(ftpInfo.getArchiveCodec()) ? null : Codecs.forName(ftpInfo.getArchiveCodec());
+            if (archive != null) {
+                outputs.add(new File(ftpInfo.getLocalPath(), output + archive.getExtension()));
+            }
+        } else if (ftpInfo.isPassThrough()) {
+            output = name;
+        }
+        if (output != null) {
+            List<File> directories = new ArrayList<>();
+            directories.add(new File(ftpInfo.getCompressPath()));
+            if (outputRouter.isEnabled(ftpInfo)) {
+                directories.add(outputRouter.directory(source, fileInfo));
+            }
+            for (File directory : directories) {
+                outputs.add(new File(directory, output));
+                if (transformStage.isEnabled()) {
+                    outputs.add(new File(directory, transformStage.outputName(output)));
+                }
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * 根据同步索引判断文件是否已同步; 索引中没有记录但本地已有同样大小的文件时(索引启用前下载的文件), 补录索引
+     */
+    private boolean isSynced(SourceContext source, FileInfo fileInfo) throws IOException {
+        FtpInfo ftpInfo = source.getFtpInfo();
+        SyncIndex syncIndex = source.getSyncIndex();
+        if (syncIndex.isSynced(fileInfo)) {
+            return true;
+        }
+        if (!syncIndex.contains(fileInfo)) {
+            File localFile = new File(ftpInfo.getLocalPath() + File.separator + fileInfo.getName());
+            if (localFile.exists() && localFile.length() == fileInfo.getSize()) {
+                log.info("本地已存在该文件:{}，补录同步索引", localFile.getPath());
+                syncIndex.mark(fileInfo, SyncStatus.DOWNLOADED);
+                return true;
             }
         }
+        return false;
     }
 
 }
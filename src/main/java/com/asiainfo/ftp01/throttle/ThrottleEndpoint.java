@@ -0,0 +1,94 @@
+package com.asiainfo.ftp01.throttle;
+
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.source.SourceRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 运行时查看和调整限速, 不需要重启:
+ * GET /actuator/throttle 查看全部限速;
+ * POST /actuator/throttle {"maxBytesPerSecond":10485760,"maxFilesPerSecond":0} 调整全局限速;
+ * POST /actuator/throttle/{采集源} 调整该采集源的限速. 未传的项保持不变, 0为不限
+ */
+@Slf4j
+@Component
+@Endpoint(id = "throttle")
+public class ThrottleEndpoint {
+
+    private static final String GLOBAL = "global";
+
+    @Autowired
+    private TransferThrottle throttle;
+
+    @Autowired
+    private SourceRegistry sourceRegistry;
+
+    @ReadOperation
+    public Map<String, Map<String, Long>> limits() {
+        Map<String, Map<String, Long>> limits = new LinkedHashMap<>();
+        limits.put(GLOBAL, limit(throttle.getByteBucket(), throttle.getFileBucket()));
+        for (SourceContext source : sourceRegistry.getSources()) {
+            limits.put(source.getName(), limit(source.getByteBucket(), source.getFileBucket()));
+        }
+        return limits;
+    }
+
+    @ReadOperation
+    public Map<String, Long> sourceLimits(@Selector String source) {
+        if (GLOBAL.equals(source)) {
+            return limit(throttle.getByteBucket(), throttle.getFileBucket());
+        }
+        SourceContext context = sourceRegistry.get(source);
+        return context == null ? null : limit(context.getByteBucket(), context.getFileBucket());
+    }
+
+    @WriteOperation
+    public Map<String, Long> updateGlobal(@Nullable Long maxBytesPerSecond, @Nullable Long maxFilesPerSecond) {
+        return updateSource(GLOBAL, maxBytesPerSecond, maxFilesPerSecond);
+    }
+
+    @WriteOperation
+    public Map<String, Long> updateSource(@Selector String source, @Nullable Long maxBytesPerSecond, @Nullable Long maxFilesPerSecond) {
+        TokenBucket byteBucket;
+        TokenBucket fileBucket;
+        if (GLOBAL.equals(source)) {
+            byteBucket = throttle.getByteBucket();
+            fileBucket = throttle.getFileBucket();
+        } else {
+            SourceContext context = sourceRegistry.get(source);
+            if (context == null) {
+                return null;
+            }
+            byteBucket = context.getByteBucket();
+            fileBucket = context.getFileBucket();
+        }
+        if (maxBytesPerSecond != null) {
+            byteBucket.setRate(maxBytesPerSecond);
+        }
+        if (maxFilesPerSecond != null) {
+            fileBucket.setRate(maxFilesPerSecond);
+        }
+        log.info("调整限速,{}:{}字节/秒,{}文件/秒", source, byteBucket.getRate(), fileBucket.getRate());
+        return limit(byteBucket, fileBucket);
+    }
+
+    private static Map<String, Long> limit(TokenBucket byteBucket, TokenBucket fileBucket) {
+        Map<String, Long> limit = new LinkedHashMap<>();
+        limit.put("maxBytesPerSecond", byteBucket.getRate());
+        limit.put("maxFilesPerSecond", fileBucket.getRate());
+        limit.put("waitMillis", (byteBucket.getWaitNanos() + fileBucket.getWaitNanos()) / 1000000);
+        return limit;
+    }
+}
@@ -0,0 +1,57 @@
+package com.asiainfo.ftp01.throttle;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 按读取的字节数从令牌桶获取令牌的输入流, 多个令牌桶同时生效(如全局和采集源)
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+    private final TokenBucket[] buckets;
+
+    public ThrottledInputStream(InputStream in, TokenBucket... buckets) {
+        super(in);
+        this.buckets = buckets;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            throttle(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = super.read(b, off, len);
+        if (count > 0) {
+            throttle(count);
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        throttle(skipped);
+        return skipped;
+    }
+
+    private void throttle(long bytes) throws IOException {
+        try {
+            for (TokenBucket bucket : buckets) {
+                bucket.acquire(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("限速等待被中断");
+        }
+    }
+}
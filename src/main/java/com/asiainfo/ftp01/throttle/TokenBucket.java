@@ -0,0 +1,88 @@
+package com.asiainfo.ftp01.throttle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 令牌桶限速器, 速率可在运行时调整, 速率为0时不限速.
+ * 令牌不足时先预支再等待, 多个线程按到达顺序依次等待; 空闲时最多积累1秒的令牌作为突发量
+ */
+public class TokenBucket {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private volatile long rate;
+
+    private double tokens;
+
+    private long lastNanos = System.nanoTime();
+
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    public TokenBucket(long rate) {
+        this.rate = Math.max(0, rate);
+        this.tokens = this.rate;
+    }
+
+    /**
+     * 每秒令牌数, 0为不限速
+     */
+    public long getRate() {
+        return rate;
+    }
+
+    /**
+     * 调整速率, 积累的令牌不超过新速率
+     *
+     * @param rate 每秒令牌数, 0为不限速
+     */
+    public synchronized void setRate(long rate) {
+        refill();
+        this.rate = Math.max(0, rate);
+        tokens = Math.min(tokens, this.rate);
+    }
+
+    /**
+     * 获取令牌, 不足时等待
+     *
+     * @param permits 令牌数
+     * @throws InterruptedException
+     */
+    public void acquire(long permits) throws InterruptedException {
+        if (rate <= 0 || permits <= 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long current = rate;
+            if (current <= 0) {
+                return;
+            }
+            refill();
+            tokens -= permits;
+            wait = tokens >= 0 ? 0 : (long) (-tokens * SECOND / current);
+        }
+        if (wait > 0) {
+            waitNanos.addAndGet(wait);
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * 因限速累计等待的时间(纳秒)
+     */
+    public long getWaitNanos() {
+        return waitNanos.get();
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long current = rate;
+        if (current > 0) {
+            tokens = Math.min(current, tokens + (double) (now - lastNanos) * current / SECOND);
+        }
+        lastNanos = now;
+    }
+}
@@ -0,0 +1,61 @@
+package com.asiainfo.ftp01.throttle;
+
+import com.asiainfo.ftp01.model.ThrottleInfo;
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.utils.ExtendedFtpClient;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 下载限速: 全局和各采集源的字节数、文件数令牌桶. 字节数在ftp数据流读取时限速,
+ * 共享出口带宽不会被并发下载占满; 速率可在运行时调整
+ */
+@Slf4j
+@Getter
+@Component
+public class TransferThrottle {
+
+    @Autowired
+    private ThrottleInfo throttleInfo;
+
+    private TokenBucket byteBucket;
+
+    private TokenBucket fileBucket;
+
+    @PostConstruct
+    public void start() {
+        byteBucket = new TokenBucket(throttleInfo.getMaxBytesPerSecond());
+        fileBucket = new TokenBucket(throttleInfo.getMaxFilesPerSecond());
+        log.info("全局限速:{}字节/秒,{}文件/秒(0为不限)", byteBucket.getRate(), fileBucket.getRate());
+    }
+
+    /**
+     * 开始下载一个文件前获取文件数令牌
+     *
+     * @param source 采集源
+     * @throws InterruptedException
+     */
+    public void acquireFile(SourceContext source) throws InterruptedException {
+        fileBucket.acquire(1);
+        source.getFileBucket().acquire(1);
+    }
+
+    /**
+     * 会话的数据流按全局和采集源的字节数限速
+     *
+     * @param source 采集源
+     * @param client 采集源的ftp会话
+     */
+    public void bind(SourceContext source, FTPClient client) {
+        if (client instanceof ExtendedFtpClient) {
+            ((ExtendedFtpClient) client).setThrottle(byteBucket, source.getByteBucket());
+        }
+    }
+}
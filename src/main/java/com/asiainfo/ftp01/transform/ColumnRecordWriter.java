@@ -0,0 +1,83 @@
+package com.asiainfo.ftp01.transform;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description columns格式(格式标记C): 记录按块存放, 块内同一字段连续存放, 读取方可以只解析需要的列.
+ * 每块为记录数、列数, 之后每列为该列的字节数, 以及各记录该字段的长度和字节; 记录缺少的字段按空字符串写出
+ */
+public class ColumnRecordWriter implements RecordWriter {
+
+    private final OutputStream out;
+
+    private final int blockRecords;
+
+    private final List<ByteArrayOutputStream> columns = new ArrayList<>();
+
+    private int records;
+
+    public ColumnRecordWriter(OutputStream out, int blockRecords) throws IOException {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        this.blockRecords = Math.max(1, blockRecords);
+        this.out.write(MAGIC);
+        this.out.write('C');
+    }
+
+    @Override
+    public void write(String[] fields) throws IOException {
+        while (columns.size() < fields.length) {
+            // 新出现的列在之前的记录中为空
+            ByteArrayOutputStream column = new ByteArrayOutputStream();
+            for (int i = 0; i < records; i++) {
+                column.write(0);
+            }
+            columns.add(column);
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            ByteArrayOutputStream column = columns.get(i);
+            if (i < fields.length) {
+                byte[] bytes = fields[i].getBytes(StandardCharsets.UTF_8);
+                RecordWriter.writeVarint(column, bytes.length);
+                column.write(bytes);
+            } else {
+                column.write(0);
+            }
+        }
+        if (++records == blockRecords) {
+            flushBlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (records > 0) {
+                flushBlock();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        RecordWriter.writeVarint(out, records);
+        RecordWriter.writeVarint(out, columns.size());
+        for (ByteArrayOutputStream column : columns) {
+            RecordWriter.writeVarint(out, column.size());
+            column.writeTo(out);
+        }
+        // 列缓冲区在块之间复用
+        for (ByteArrayOutputStream column : columns) {
+            column.reset();
+        }
+        records = 0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.asiainfo.ftp01.transform;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 记录过滤器, 实现类注册为Spring bean后可在ftp.transform.filters中按名称启用
+ */
+public interface RecordFilter {
+
+    /**
+     * 过滤器名称, 用于配置
+     */
+    String getName();
+
+    /**
+     * 是否保留该记录
+     *
+     * @param fields 投影前的全部字段
+     * @return false时丢弃
+     */
+    boolean accept(String[] fields);
+}
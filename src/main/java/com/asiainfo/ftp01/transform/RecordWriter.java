@@ -0,0 +1,54 @@
+package com.asiainfo.ftp01.transform;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 记录输出格式. 文件以4字节魔数REC1和1字节格式标记开头, 长度、个数均为无符号变长整数(每字节低7位, 高位表示后续还有字节),
+ * 字段为UTF-8字节
+ */
+public interface RecordWriter extends Closeable {
+
+    byte[] MAGIC = {'R', 'E', 'C', '1'};
+
+    /**
+     * 写出一条记录
+     *
+     * @param fields 投影后的字段
+     * @throws IOException
+     */
+    void write(String[] fields) throws IOException;
+
+    /**
+     * 按格式名称创建
+     *
+     * @param format       rows或columns
+     * @param out          输出流, 关闭时一并关闭
+     * @param blockRecords columns格式每块的记录数
+     * @return
+     * @throws IOException
+     */
+    static RecordWriter open(String format, OutputStream out, int blockRecords) throws IOException {
+        if ("rows".equalsIgnoreCase(format)) {
+            return new RowRecordWriter(out);
+        }
+        if ("columns".equalsIgnoreCase(format)) {
+            return new ColumnRecordWriter(out, blockRecords);
+        }
+        throw new IllegalArgumentException("不支持的记录格式:" + format);
+    }
+
+    /**
+     * 写出无符号变长整数
+     */
+    static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
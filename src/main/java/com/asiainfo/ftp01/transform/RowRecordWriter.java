@@ -0,0 +1,37 @@
+package com.asiainfo.ftp01.transform;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description rows格式(格式标记R): 逐条记录写出, 每条记录为字段数, 之后每个字段为字节长度和字节, 读到文件末尾结束
+ */
+public class RowRecordWriter implements RecordWriter {
+
+    private final OutputStream out;
+
+    public RowRecordWriter(OutputStream out) throws IOException {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        this.out.write(MAGIC);
+        this.out.write('R');
+    }
+
+    @Override
+    public void write(String[] fields) throws IOException {
+        RecordWriter.writeVarint(out, fields.length);
+        for (String field : fields) {
+            byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+            RecordWriter.writeVarint(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
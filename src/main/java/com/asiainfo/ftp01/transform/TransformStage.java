@@ -0,0 +1,277 @@
+package com.asiainfo.ftp01.transform;
+
+import com.asiainfo.ftp01.codec.Codecs;
+import com.asiainfo.ftp01.codec.CompressionCodec;
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.TransformInfo;
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.utils.NioFiles;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 记录转换阶段: 逐行读取解压后的文本(或经解压流直接读取压缩文件), 不把整个文件读入内存;
+ * 按配置过滤、投影字段后写成二进制记录文件, 下游不必再解析文本. 一个ftp文件切分出的多个文件并行转换:
+ * 调用线程自己转换最后一个文件, 其余交给固定数量的转换线程, 多个下载、解压线程提交的文件共用同一组转换线程
+ */
+@Slf4j
+@Component
+public class TransformStage {
+
+    @Autowired
+    private TransformInfo transformInfo;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired(required = false)
+    private List<RecordFilter> availableFilters = Collections.emptyList();
+
+    private ThreadPoolExecutor executor;
+
+    private Charset charset;
+
+    private Pattern include;
+
+    private int[] projection;
+
+    private List<RecordFilter> filters;
+
+    @PostConstruct
+    public void start() {
+        if (!transformInfo.isEnabled()) {
+            return;
+        }
+        charset = Charset.forName(transformInfo.getCharset());
+        include = StringUtils.isBlank(transformInfo.getInclude()) ? null : Pattern.compile(transformInfo.getInclude());
+        projection = transformInfo.getFields().stream().mapToInt(Integer::intValue).toArray();
+        filters = new ArrayList<>();
+        for (String name : transformInfo.getFilters()) {
+            filters.add(availableFilters.stream().filter(f -> f.getName().equals(name)).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("未找到记录过滤器:" + name)));
+        }
+        if (!"rows".equalsIgnoreCase(transformInfo.getFormat()) && !"columns".equalsIgnoreCase(transformInfo.getFormat())) {
+            throw new IllegalStateException("不支持的记录格式:" + transformInfo.getFormat());
+        }
+        int parallelism = transformInfo.getParallelism() > 0 ? transformInfo.getParallelism() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadId = new AtomicInteger();
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "transform-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("记录转换启动,格式:{},线程数:{},投影字段:{},过滤器:{}", transformInfo.getFormat(), parallelism,
+                transformInfo.getFields(), transformInfo.getFilters());
+    }
+
+    public boolean isEnabled() {
+        return transformInfo.isEnabled();
+    }
+
+    /**
+     * 是否直接从下载的压缩文件转换: 不保留文本且不切分时不必先写出文本文件
+     */
+    public boolean isDirect(FtpInfo ftpInfo) {
+        return transformInfo.isEnabled() && !transformInfo.isKeepText() && ftpInfo.getSplitSize() <= 0;
+    }
+
+    /**
+     * 输入文件对应的记录文件名: 去掉压缩后缀再加上记录文件后缀
+     */
+    public String outputName(String name) {
+        CompressionCodec codec = Codecs.forFileName(name);
+        return (codec == null ? name : Codecs.stripExtension(name, codec)) + transformInfo.getExtension();
+    }
+
+    /**
+     * 转换解压后的文本文件, 记录文件与文本文件在同一目录; 不保留文本时转换后删除文本文件.
+     * 记录文件先记入提交日志, 进程中断时连同已删除文本的记录文件一起清理, 重新处理时重新下载
+     *
+     * @param source   采集源
+     * @param fileInfo 对应的ftp文件
+     * @param inputs   文本文件
+     * @return 记录文件, 未开启时返回inputs
+     * @throws IOException
+     */
+    public List<File> transform(SourceContext source, FileInfo fileInfo, List<File> inputs) throws IOException {
+        if (!transformInfo.isEnabled() || inputs.isEmpty()) {
+            return inputs;
+        }
+        List<File> targets = new ArrayList<>(inputs.size());
+        for (File input : inputs) {
+            targets.add(target(input, null));
+        }
+        source.getJournal().extend(fileInfo, targets);
+        List<File> outputs = invoke(source, inputs, null);
+        if (!transformInfo.isKeepText()) {
+            for (File input : inputs) {
+                input.delete();
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * 经解压流直接转换下载的压缩文件, 压缩文件保留
+     *
+     * @param source    采集源
+     * @param input     压缩文件
+     * @param directory 记录文件所在目录
+     * @return 记录文件
+     * @throws IOException
+     */
+    public File transform(SourceContext source, File input, File directory) throws IOException {
+        return transformFile(source, input, directory);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * 并行转换多个文件: 除最后一个外提交给转换线程, 最后一个在调用线程转换, 再依次等待其余结果
+     */
+    private List<File> invoke(SourceContext source, List<File> inputs, File directory) throws IOException {
+        List<Future<File>> futures = new ArrayList<>(inputs.size() - 1);
+        try {
+            for (File input : inputs.subList(0, inputs.size() - 1)) {
+                futures.add(executor.submit(() -> transformFile(source, input, directory)));
+            }
+            File last = transformFile(source, inputs.get(inputs.size() - 1), directory);
+            List<File> outputs = new ArrayList<>(inputs.size());
+            for (Future<File> future : futures) {
+                outputs.add(future.get());
+            }
+            outputs.add(last);
+            return outputs;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("转换记录被中断");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException("转换记录失败", e.getCause());
+        } finally {
+            // 出错时取消尚未开始的转换, 已开始的转换失败时自行删除暂存文件
+            for (Future<File> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * 转换单个文件: 先写到暂存文件, 完成后改名
+     */
+    private File transformFile(SourceContext source, File input, File directory) throws IOException {
+        File target = target(input, directory);
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("创建目录失败:" + parent.getPath());
+        }
+        File temp = NioFiles.staging(target);
+        long start = System.nanoTime();
+        long read = 0;
+        long written = 0;
+        CompressionCodec codec = Codecs.forFileName(input.getName());
+        try (InputStream raw = NioFiles.newInputStream(input);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(codec == null ? raw : codec.decompress(raw), charset), 64 * 1024);
+             RecordWriter writer = RecordWriter.open(transformInfo.getFormat(), NioFiles.newOutputStream(temp), transformInfo.getBlockRecords())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                read++;
+                String[] fields = accept(line);
+                if (fields != null) {
+                    writer.write(fields);
+                    written++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        NioFiles.commit(temp, target);
+        metrics.transformed(source.getName(), read, written, System.nanoTime() - start);
+        log.info("转换记录:{} -> {},读取行数:{},输出记录数:{},大小:{} -> {},耗时:{}ms", input.getName(), target.getPath(), read, written,
+                input.length(), target.length(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return target;
+    }
+
+    /**
+     * 解析、过滤并投影一行
+     *
+     * @return 投影后的字段, 丢弃时返回null
+     */
+    private String[] accept(String line) {
+        if (line.isEmpty() || (include != null && !include.matcher(line).find())) {
+            return null;
+        }
+        String[] fields = split(line);
+        if (fields.length < transformInfo.getMinFields()) {
+            return null;
+        }
+        for (RecordFilter filter : filters) {
+            if (!filter.accept(fields)) {
+                return null;
+            }
+        }
+        if (projection.length == 0) {
+            return fields;
+        }
+        String[] projected = new String[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            projected[i] = projection[i] < fields.length ? fields[projection[i]] : "";
+        }
+        return projected;
+    }
+
+    /**
+     * 按分隔符拆分字段, 保留空字段
+     */
+    private String[] split(String line) {
+        String delimiter = transformInfo.getDelimiter();
+        List<String> fields = new ArrayList<>();
+        int from = 0;
+        int to;
+        while ((to = line.indexOf(delimiter, from)) >= 0) {
+            fields.add(line.substring(from, to));
+            from = to + delimiter.length();
+        }
+        fields.add(line.substring(from));
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * 输入文件对应的记录文件, directory为null时与输入文件在同一目录
+     */
+    private File target(File input, File directory) {
+        return new File(directory == null ? input.getParentFile() : directory, outputName(input.getName()));
+    }
+}
@@ -0,0 +1,82 @@
+package com.asiainfo.ftp01.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 按用途划分、大小固定的字节数组池, 每个文件不再新分配拷贝缓冲区:
+ * local()返回线程内复用的数组, 用于不跨线程的拷贝循环, 同一线程内嵌套的拷贝循环需使用不同的池;
+ * acquire/release用于在线程之间传递的数组(如并行压缩的数据块), 空闲数组数有上限, 超出的交给GC回收
+ */
+public final class BufferPool {
+
+    /**
+     * 网络传输的拷贝缓冲区: 上传使用local(), 下载写文件使用acquire/release, 下载线程随周期新建时仍可复用
+     */
+    public static final BufferPool TRANSFER = new BufferPool(256 * 1024, 32);
+
+    /**
+     * 压缩、解压和计算摘要的拷贝缓冲区
+     */
+    public static final BufferPool CODEC = new BufferPool(GZipUtils.BUFFER, 0);
+
+    private final int bufferSize;
+
+    private final int maxIdle;
+
+    private final ThreadLocal<byte[]> local;
+
+    private final Queue<byte[]> idle = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * @param bufferSize 数组大小
+     * @param maxIdle    acquire/release方式下最多保留的空闲数组数
+     */
+    public BufferPool(int bufferSize, int maxIdle) {
+        this.bufferSize = bufferSize;
+        this.maxIdle = maxIdle;
+        this.local = ThreadLocal.withInitial(() -> new byte[bufferSize]);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 当前线程复用的数组, 不能传给其他线程
+     */
+    public byte[] local() {
+        return local.get();
+    }
+
+    /**
+     * 取出一个数组, 没有空闲数组时新建; 使用完后调用release归还
+     */
+    public byte[] acquire() {
+        byte[] buffer = idle.poll();
+        if (buffer == null) {
+            return new byte[bufferSize];
+        }
+        idleCount.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * 归还数组, 大小不符或空闲数组已达上限时丢弃
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length != bufferSize) {
+            return;
+        }
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(buffer);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
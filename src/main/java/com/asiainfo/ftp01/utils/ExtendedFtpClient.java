@@ -0,0 +1,130 @@
+package com.asiainfo.ftp01.utils;
+
+import com.asiainfo.ftp01.throttle.ThrottledInputStream;
+import com.asiainfo.ftp01.throttle.TokenBucket;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
+import org.apache.commons.net.io.Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 扩展的FTPClient:
+ * 1. 开放列表数据连接. FTPClient自带的listFiles和FTPListParseEngine都会先把整个目录的列表读入内存,
+ * 通过该类可以边读取边解析, 内存占用与目录大小无关;
+ * 2. 命令流水线: 一次写出多条控制命令再依次读取应答, 批量删除、改名时不必每条命令等待一个往返;
+ * 3. 限速: 设置令牌桶后, retrieveFileStream返回的数据流和storeFile读取的本地流按字节数限速;
+ * 4. 二进制上传直接用线程内复用的缓冲区写入数据连接, 不再每个文件新建BufferedOutputStream和拷贝缓冲区
+ */
+public class ExtendedFtpClient extends FTPClient {
+
+    private volatile TokenBucket[] buckets;
+
+    /**
+     * 当前是否为二进制传输, 连接建立时commons-net恢复为ASCII
+     */
+    private boolean binary;
+
+    /**
+     * 设置传输限速使用的令牌桶
+     *
+     * @param buckets 令牌桶, 为空时不限速
+     */
+    public void setThrottle(TokenBucket... buckets) {
+        this.buckets = buckets;
+    }
+
+    /**
+     * 发送LIST或MLSD命令并打开数据连接, 读取完毕后需关闭连接并调用completePendingCommand
+     *
+     * @param mlsd 是否使用MLSD
+     * @param path 目录
+     * @return 数据连接, 服务器拒绝时返回null
+     * @throws IOException
+     */
+    public Socket openListConnection(boolean mlsd, String path) throws IOException {
+        return _openDataConnection_(mlsd ? FTPCmd.MLSD : FTPCmd.LIST, path);
+    }
+
+    @Override
+    protected InputStream _retrieveFileStream(String command, String remote) throws IOException {
+        InputStream in = super._retrieveFileStream(command, remote);
+        TokenBucket[] current = buckets;
+        return in == null || current == null || current.length == 0 ? in : new ThrottledInputStream(in, current);
+    }
+
+    @Override
+    protected boolean _storeFile(String command, String remote, InputStream local) throws IOException {
+        TokenBucket[] current = buckets;
+        InputStream in = current == null || current.length == 0 ? local : new ThrottledInputStream(local, current);
+        if (!binary) {
+            return super._storeFile(command, remote, in);
+        }
+        Socket socket = _openDataConnection_(command, remote);
+        if (socket == null) {
+            return false;
+        }
+        byte[] buffer = BufferPool.TRANSFER.local();
+        try (OutputStream output = socket.getOutputStream()) {
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                output.write(buffer, 0, count);
+            }
+        } catch (IOException e) {
+            Util.closeQuietly(socket);
+            throw e;
+        }
+        socket.close();
+        return completePendingCommand();
+    }
+
+    @Override
+    public boolean setFileType(int fileType) throws IOException {
+        boolean result = super.setFileType(fileType);
+        if (result) {
+            binary = fileType == BINARY_FILE_TYPE;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean setFileType(int fileType, int formatOrByteSize) throws IOException {
+        boolean result = super.setFileType(fileType, formatOrByteSize);
+        if (result) {
+            binary = fileType == BINARY_FILE_TYPE;
+        }
+        return result;
+    }
+
+    @Override
+    protected void _connectAction_() throws IOException {
+        binary = false;
+        super._connectAction_();
+    }
+
+    /**
+     * 连续发送多条控制命令后再依次读取应答
+     *
+     * @param commands 完整的命令行(不含换行), 参数已按服务器编码转换
+     * @return 每条命令的应答码
+     * @throws IOException
+     */
+    public int[] sendPipelined(List<String> commands) throws IOException {
+        for (String command : commands) {
+            _controlOutput_.write(command);
+            _controlOutput_.write("\r\n");
+        }
+        _controlOutput_.flush();
+        int[] replies = new int[commands.size()];
+        for (int i = 0; i < replies.length; i++) {
+            replies[i] = getReply();
+        }
+        return replies;
+    }
+}
@@ -0,0 +1,119 @@
+package com.asiainfo.ftp01.utils;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPFileEntryParser;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 分页读取的目录列表, 与FTPListParseEngine.getNext的用法相同, 但从数据连接逐行读取解析, 不缓存整个目录
+ */
+public class FtpListing implements Closeable {
+
+    private final FTPClient client;
+
+    private final String directory;
+
+    private final Socket socket;
+
+    private final BufferedReader reader;
+
+    private final FTPFileEntryParser parser;
+
+    /**
+     * 不支持逐行读取时(非ExtendedFtpClient)使用一次性列出的结果
+     */
+    private final Iterator<FTPFile> buffered;
+
+    private boolean finished;
+
+    private boolean closed;
+
+    FtpListing(FTPClient client, String directory, Socket socket, FTPFileEntryParser parser) throws IOException {
+        this.client = client;
+        this.directory = directory;
+        this.socket = socket;
+        this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), client.getControlEncoding()));
+        this.parser = parser;
+        this.buffered = null;
+    }
+
+    FtpListing(FTPClient client, String directory, FTPFile[] files) {
+        this.client = client;
+        this.directory = directory;
+        this.socket = null;
+        this.reader = null;
+        this.parser = null;
+        this.buffered = Arrays.asList(files).iterator();
+    }
+
+    /**
+     * 读取下一页目录项, 已过滤.和..
+     *
+     * @param pageSize 每页最多条目数
+     * @return 目录项, 读取完毕时返回空列表
+     * @throws IOException
+     */
+    public List<FTPFile> next(int pageSize) throws IOException {
+        List<FTPFile> page = new ArrayList<>(Math.min(pageSize, 1024));
+        if (buffered != null) {
+            while (page.size() < pageSize && buffered.hasNext()) {
+                page.add(buffered.next());
+            }
+            finished = !buffered.hasNext();
+            return page;
+        }
+        while (!finished && page.size() < pageSize) {
+            String entry = parser.readNextEntry(reader);
+            if (entry == null) {
+                finished = true;
+                break;
+            }
+            FTPFile ftpFile = parser.parseFTPEntry(entry);
+            if (FtpUtils.isListEntry(ftpFile)) {
+                page.add(ftpFile);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * 关闭数据连接并读取列表命令的完成应答; 未读完就关闭时服务器会返回传输中止, 该会话不应再复用
+     *
+     * @throws IOException 列表读取完毕但服务器返回失败
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed || socket == null) {
+            closed = true;
+            return;
+        }
+        closed = true;
+        try {
+            reader.close();
+        } finally {
+            socket.close();
+        }
+        if (!client.completePendingCommand() && finished) {
+            throw new FtpReplyException("列出目录失败:" + directory + ",返回:" + client.getReplyString(), client.getReplyCode());
+        }
+    }
+
+    /**
+     * 是否已读取到列表末尾
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,22 @@
+package com.asiainfo.ftp01.utils;
+
+import java.io.IOException;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description ftp服务器返回失败应答, 携带应答码以便区分暂时性失败(4xx)和永久性失败(5xx)
+ */
+public class FtpReplyException extends IOException {
+
+    private final int replyCode;
+
+    public FtpReplyException(String message, int replyCode) {
+        super(message);
+        this.replyCode = replyCode;
+    }
+
+    public int getReplyCode() {
+        return replyCode;
+    }
+}
@@ -71,7 +71,7 @@ public class FtpUtil {
             // 设置文件类型，二进制
             ftpClient.setFileType(FTPClient.BINARY_FILE_TYPE);
             // 设置缓冲区大小
-            ftpClient.setBufferSize(3072);
+            ftpClient.setBufferSize(BufferPool.TRANSFER.getBufferSize());
 
         } catch (IOException e) {
             log.error("连接ftp服务器异常", e);
@@ -177,7 +177,7 @@ public class FtpUtil {
             }
             if (result) {
                 // 上传文件
-                fileInputStream = new FileInputStream(new File(localPath + File.separator + localFileName));
+                fileInputStream = NioFiles.newInputStream(new File(localPath + File.separator + localFileName));
                 // 当前为目标目录，为相对路径
                 result = ftpClient.storeFile(new String(remoteFileName.getBytes(LOCAL_CHARSET), SERVER_CHARSET), fileInputStream);
                 if (result) {
@@ -243,7 +243,7 @@ public class FtpUtil {
             if (ftpFiles.length == 1) {
                 File localFile = new File(localPath + File.separator + localFileName);
                 // 输出流
-                OutputStream os = new FileOutputStream(localFile);
+                OutputStream os = NioFiles.newOutputStream(localFile);
                 if (!ftpClient.retrieveFile(new String((remoteFileName).getBytes(LOCAL_CHARSET), SERVER_CHARSET), os)) {
                     result = false;
                     log.info("将：[" + remotePath + File.separator + remoteFileName + "]下载到：[" + localPath + File.separator + localFileName + "]失败");
@@ -383,8 +383,7 @@ public class FtpUtil {
                 result.add(ftpFiles[i].getName());
             }
         }
-        Collections.sort(result);
-        Collections.reverse(result);
+        result.sort(Collections.reverseOrder());
         return result;
     }
 
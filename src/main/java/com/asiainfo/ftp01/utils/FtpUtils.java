@@ -1,22 +1,37 @@
 package com.asiainfo.ftp01.utils;
 
+import com.asiainfo.ftp01.codec.Codecs;
+import com.asiainfo.ftp01.codec.CompressionCodec;
 import com.asiainfo.ftp01.model.FileInfo;
 import com.asiainfo.ftp01.model.FtpInfo;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.utils.CountingInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPFileEntryParser;
 import org.apache.commons.net.ftp.FTPReply;
+import org.apache.commons.net.ftp.parser.DefaultFTPFileEntryParserFactory;
+import org.apache.commons.net.ftp.parser.FTPFileEntryParserFactory;
+import org.apache.commons.net.ftp.parser.MLSxEntryParser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.Socket;
 import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * @author king-pan
@@ -38,6 +53,17 @@ public class FtpUtils {
      */
     private static String SERVER_CHARSET = "ISO-8859-1";
 
+    /**
+     * 下载中文件后缀
+     */
+    public static final String PART_EXT = ".part";
+    /**
+     * 下载中文件对应的ftp文件信息后缀
+     */
+    public static final String META_EXT = ".meta";
+
+    private static final FTPFileEntryParserFactory PARSER_FACTORY = new DefaultFTPFileEntryParserFactory();
+
 
     public FTPClient getFTPClient() {
         return getFTPClient(ftpInfo.getHost(), ftpInfo.getPort(), ftpInfo.getUsername(), ftpInfo.getPassword());
@@ -65,6 +91,87 @@ public class FtpUtils {
         return ftpClient;
     }
 
+    /**
+     * 新建一个独立的ftp会话, 不会覆盖共享的ftpClient, 供并发下载使用
+     *
+     * @return 已登录的ftp连接
+     * @throws IOException
+     */
+    public FTPClient openSession() throws IOException {
+        return openSession(ftpInfo);
+    }
+
+    /**
+     * 按指定的ftp配置新建一个独立的ftp会话
+     *
+     * @param ftpInfo ftp配置
+     * @return 已登录的ftp连接
+     * @throws IOException
+     */
+    public FTPClient openSession(FtpInfo ftpInfo) throws IOException {
+        FTPClient client = new ExtendedFtpClient();
+        // 服务器接受连接后不再应答时, 连接、登录、校验和传输都在超时后失败, 不会一直占用会话名额
+        client.setConnectTimeout(ftpInfo.getConnectTimeoutMillis());
+        client.setDefaultTimeout(ftpInfo.getSoTimeoutMillis());
+        client.setDataTimeout(ftpInfo.getDataTimeoutMillis());
+        client.connect(ftpInfo.getHost(), ftpInfo.getPort());
+        if (!client.login(ftpInfo.getUsername(), ftpInfo.getPassword())
+                || !FTPReply.isPositiveCompletion(client.getReplyCode())) {
+            int replyCode = client.getReplyCode();
+            closeSession(client);
+            throw new FtpReplyException("ftp登录失败,返回码:" + replyCode, replyCode);
+        }
+        // 设置文件类型，二进制
+        client.setFileType(FTPClient.BINARY_FILE_TYPE);
+        if (ftpInfo.getBufferSize() > 0) {
+            client.setBufferSize(ftpInfo.getBufferSize());
+        }
+        if (ftpInfo.getSocketBufferSize() > 0) {
+            // 作用于之后建立的数据连接, 在连接前设置, 接收窗口可按缓冲区大小协商
+            client.setSendDataSocketBufferSize(ftpInfo.getSocketBufferSize());
+            client.setReceieveDataSocketBufferSize(ftpInfo.getSocketBufferSize());
+        }
+        return client;
+    }
+
+    /**
+     * 关闭独立的ftp会话, 关闭过程中的异常只记录日志
+     *
+     * @param client ftp连接
+     */
+    public void closeSession(FTPClient client) {
+        if (null == client || !client.isConnected()) {
+            return;
+        }
+        try {
+            client.logout();
+        } catch (IOException e) {
+            log.warn("退出ftp服务器异常:{}", e.getMessage());
+        } finally {
+            try {
+                client.disconnect();
+            } catch (IOException e) {
+                log.warn("关闭ftp服务器异常:{}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 不退出登录直接断开ftp会话, 用于状态不确定的会话, 关闭过程中的异常只记录日志
+     *
+     * @param client ftp连接
+     */
+    public void abortSession(FTPClient client) {
+        if (null == client || !client.isConnected()) {
+            return;
+        }
+        try {
+            client.disconnect();
+        } catch (IOException e) {
+            log.warn("关闭ftp服务器异常:{}", e.getMessage());
+        }
+    }
+
     /**
      * 获取指定路径下文件列表
      *
@@ -73,6 +180,176 @@ public class FtpUtils {
      * @throws IOException
      */
     public List<FileInfo> listFiles(String remotePath) throws IOException {
+        return listFiles(ftpClient, remotePath);
+    }
+
+    /**
+     * 列出单个目录, 不递归; 返回的条目已去掉 . 和 ..
+     *
+     * @param ftpClient ftp连接
+     * @param directory 目录绝对路径
+     * @param mlsd      是否使用MLSD
+     * @return
+     * @throws IOException
+     */
+    public FTPFile[] listDirectory(FTPClient ftpClient, String directory, boolean mlsd) throws IOException {
+        String encoded = new String(directory.getBytes(LOCAL_CHARSET), SERVER_CHARSET);
+        FTPFile[] ftpFiles = mlsd ? ftpClient.mlistDir(encoded) : ftpClient.listFiles(encoded);
+        if (!FTPReply.isPositiveCompletion(ftpClient.getReplyCode())) {
+            throw new FtpReplyException("列出目录失败:" + directory + ",返回:" + ftpClient.getReplyString(), ftpClient.getReplyCode());
+        }
+        List<FTPFile> result = new ArrayList<>(ftpFiles.length);
+        for (FTPFile ftpFile : ftpFiles) {
+            if (isListEntry(ftpFile)) {
+                result.add(ftpFile);
+            }
+        }
+        return result.toArray(new FTPFile[0]);
+    }
+
+    /**
+     * 打开分页读取的目录列表, 边读取边解析; 会话不是ExtendedFtpClient时退化为一次性列出
+     *
+     * @param ftpClient ftp连接
+     * @param directory 目录(绝对路径)
+     * @param mlsd      是否使用MLSD, 否则使用LIST
+     * @return 目录列表, 使用完毕后必须关闭
+     * @throws IOException
+     */
+    public FtpListing openListing(FTPClient ftpClient, String directory, boolean mlsd) throws IOException {
+        if (!(ftpClient instanceof ExtendedFtpClient)) {
+            return new FtpListing(ftpClient, directory, listDirectory(ftpClient, directory, mlsd));
+        }
+        String encoded = new String(directory.getBytes(LOCAL_CHARSET), SERVER_CHARSET);
+        FTPFileEntryParser parser = mlsd ? MLSxEntryParser.getInstance()
+                : PARSER_FACTORY.createFileEntryParser(ftpClient.getSystemType());
+        Socket socket = ((ExtendedFtpClient) ftpClient).openListConnection(mlsd, encoded);
+        if (socket == null) {
+            throw new FtpReplyException("列出目录失败:" + directory + ",返回:" + ftpClient.getReplyString(), ftpClient.getReplyCode());
+        }
+        return new FtpListing(ftpClient, directory, socket, parser);
+    }
+
+    /**
+     * 上传文件, 路径按ftp协议编码
+     *
+     * @param ftpClient  ftp连接
+     * @param remoteFile ftp文件路径
+     * @param in         文件内容
+     * @return 是否上传成功
+     * @throws IOException
+     */
+    public boolean storeFile(FTPClient ftpClient, String remoteFile, InputStream in) throws IOException {
+        return ftpClient.storeFile(new String(remoteFile.getBytes(LOCAL_CHARSET), SERVER_CHARSET), in);
+    }
+
+    /**
+     * 批量发送控制命令: ExtendedFtpClient一次写出全部命令后依次读取应答, 其他会话逐条发送
+     *
+     * @param ftpClient ftp连接
+     * @param commands  完整的命令行, 如"DELE /outgoing/a.gz"
+     * @return 每条命令的应答码
+     * @throws IOException
+     */
+    public int[] sendCommands(FTPClient ftpClient, List<String> commands) throws IOException {
+        List<String> encoded = new ArrayList<>(commands.size());
+        for (String command : commands) {
+            encoded.add(new String(command.getBytes(LOCAL_CHARSET), SERVER_CHARSET));
+        }
+        if (ftpClient instanceof ExtendedFtpClient) {
+            return ((ExtendedFtpClient) ftpClient).sendPipelined(encoded);
+        }
+        int[] replies = new int[encoded.size()];
+        for (int i = 0; i < replies.length; i++) {
+            replies[i] = ftpClient.sendCommand(encoded.get(i));
+        }
+        return replies;
+    }
+
+    /**
+     * 探测服务器计算文件摘要的命令: FEAT中声明HASH时使用HASH, 否则使用声明的XMD5、XSHA1或XSHA256
+     *
+     * @param ftpClient ftp连接
+     * @param algorithm 摘要算法, 如MD5、SHA-1、SHA-256
+     * @return 命令, 服务器不支持时返回空串
+     * @throws IOException
+     */
+    public String digestCommand(FTPClient ftpClient, String algorithm) throws IOException {
+        if (ftpClient.hasFeature("HASH")) {
+            return "HASH";
+        }
+        String command = "X" + algorithm.replace("-", "").toUpperCase();
+        return ftpClient.hasFeature(command) ? command : "";
+    }
+
+    /**
+     * 由服务器计算文件摘要, 不必下载文件; HASH命令前用OPTS HASH选择算法, 两条命令流水线发送
+     *
+     * @param ftpClient    ftp连接
+     * @param command      digestCommand探测到的命令
+     * @param algorithm    摘要算法
+     * @param remoteFile   ftp文件绝对路径
+     * @param digestLength 摘要字节数
+     * @return 摘要, 服务器拒绝或应答无法解析时返回null
+     * @throws IOException
+     */
+    public byte[] remoteDigest(FTPClient ftpClient, String command, String algorithm, String remoteFile, int digestLength) throws IOException {
+        List<String> commands = "HASH".equals(command)
+                ? Arrays.asList("OPTS HASH " + algorithm, "HASH " + remoteFile)
+                : Collections.singletonList(command + " " + remoteFile);
+        int[] replies = sendCommands(ftpClient, commands);
+        for (int reply : replies) {
+            if (!FTPReply.isPositiveCompletion(reply)) {
+                return null;
+            }
+        }
+        // 应答如"213 SHA-256 0-49 169cd2... filename"或"250 169cd2...", 取长度相符的十六进制串
+        for (String token : ftpClient.getReplyString().trim().split("\\s+")) {
+            if (token.length() == digestLength * 2 && token.matches("[0-9a-fA-F]+")) {
+                byte[] digest = new byte[digestLength];
+                for (int i = 0; i < digestLength; i++) {
+                    digest[i] = (byte) Integer.parseInt(token.substring(i * 2, i * 2 + 2), 16);
+                }
+                return digest;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 用本地文件的前length字节更新摘要
+     */
+    private static void digest(MessageDigest digest, File file, long length) throws IOException {
+        if (length <= 0) {
+            return;
+        }
+        byte[] buffer = BufferPool.CODEC.local();
+        try (InputStream in = NioFiles.newInputStream(file)) {
+            long remaining = length;
+            int count;
+            while (remaining > 0 && (count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                digest.update(buffer, 0, count);
+                remaining -= count;
+            }
+        }
+    }
+
+    /**
+     * 是否为有效的目录项: 排除解析失败的行、.和..以及名称中带路径的项
+     */
+    static boolean isListEntry(FTPFile ftpFile) {
+        return ftpFile != null && !".".equals(ftpFile.getName()) && !"..".equals(ftpFile.getName()) && !ftpFile.getName().contains("/");
+    }
+
+    /**
+     * 使用指定的ftp连接获取指定路径下文件列表
+     *
+     * @param ftpClient  ftp连接
+     * @param remotePath 文件存储路径
+     * @return
+     * @throws IOException
+     */
+    public List<FileInfo> listFiles(FTPClient ftpClient, String remotePath) throws IOException {
         log.info("传入remotePath:" + remotePath);
         if (StringUtils.isBlank(remotePath)) {
             throw new RuntimeException("传入的ftp路径为空");
@@ -83,10 +360,13 @@ public class FtpUtils {
         List<FileInfo> result = new ArrayList<>();
         for (int i = 0; i < ftpFiles.length; i++) {
             if (ftpFiles[i].getType() == FTPFile.FILE_TYPE) {
-                result.add(new FileInfo(remotePath, ftpFiles[i].getName()));
+                long timestamp = ftpFiles[i].getTimestamp() == null ? 0 : ftpFiles[i].getTimestamp().getTimeInMillis();
+                FileInfo fileInfo = new FileInfo(remotePath, ftpFiles[i].getName(), ftpFiles[i].getSize(), timestamp);
+                fileInfo.setCoarseTimestamp(true);
+                result.add(fileInfo);
             }
             if (ftpFiles[i].getType() == FTPFile.DIRECTORY_TYPE) {
-                result.addAll(listFiles(remotePath + "/" + ftpFiles[i].getName()));
+                result.addAll(listFiles(ftpClient, remotePath + "/" + ftpFiles[i].getName()));
             }
             log.info("文件名称:{},文件类型:{}", ftpFiles[i].getName(), ftpFiles[i].getType());
         }
@@ -103,6 +383,20 @@ public class FtpUtils {
      * @throws IOException
      */
     public boolean download(String remotePath, String remoteFileName, String localPath) throws IOException {
+        return download(ftpClient, remotePath, remoteFileName, localPath);
+    }
+
+    /**
+     * 使用指定的ftp连接下载文件
+     *
+     * @param ftpClient      ftp连接
+     * @param remotePath     ftp服务器上的相对路径
+     * @param remoteFileName 要下载的文件名
+     * @param localPath      本地目录
+     * @return
+     * @throws IOException
+     */
+    public boolean download(FTPClient ftpClient, String remotePath, String remoteFileName, String localPath) throws IOException {
         log.info("ftp目录:{},ftp文件名：{}，本地目录:{}", remotePath, remoteFileName, localPath);
         boolean result = false;
         try {
@@ -121,17 +415,25 @@ public class FtpUtils {
             FTPFile[] ftpFiles = ftpClient.listFiles(new String((remoteFileName).getBytes(LOCAL_CHARSET), SERVER_CHARSET));
             if (ftpFiles.length == 1) {
                 File localFile = new File(localPath + File.separator + remoteFileName);
-                // 输出流
-                OutputStream os = new FileOutputStream(localFile);
-                if (!ftpClient.retrieveFile(new String((remoteFileName).getBytes(LOCAL_CHARSET), SERVER_CHARSET), os)) {
+                // 先下载到暂存文件, 下载完成后再改名
+                File temp = NioFiles.staging(localFile);
+                OutputStream os = NioFiles.newOutputStream(temp);
+                boolean retrieved;
+                try {
+                    retrieved = ftpClient.retrieveFile(new String((remoteFileName).getBytes(LOCAL_CHARSET), SERVER_CHARSET), os);
+                } finally {
+                    os.close();
+                }
+                if (!retrieved) {
+                    temp.delete();
                     log.info("将：[" + remotePath + File.separator + remoteFileName + "]下载到：[" + localPath + File.separator + remoteFileName + "]失败");
                     result = false;
                     throw new RuntimeException(remotePath + File.separator + remoteFileName + "文件下载失败");
                 } else {
+                    NioFiles.commit(temp, localFile);
                     result = true;
                     log.info("将：[" + remotePath + File.separator + remoteFileName + "]下载到：[" + localPath + File.separator + remoteFileName + "]成功");
                 }
-                os.close();
             } else {
                 result = false;
                 log.error("远程文件不存在：" + remotePath + File.separator + remoteFileName);
@@ -146,6 +448,183 @@ public class FtpUtils {
         return result;
     }
 
+    /**
+     * 可续传下载: 先写入 文件名.part, 旁边的 .part.meta 记录ftp文件大小和修改时间;
+     * 再次下载时若ftp文件未变化, 从.part已写入的长度处用REST续传. 下载完成且大小与ftp文件一致后改名为正式文件;
+     * 内容重复时在改名前丢弃.part, 不影响本地已有的同名文件
+     *
+     * @param ftpClient  ftp连接
+     * @param fileInfo   ftp文件信息
+     * @param remoteFile ftp文件绝对路径, 下载时不切换工作目录
+     * @param localPath  本地目录
+     * @param digest     下载的同时计算内容摘要, 为null时不计算; 续传时先计算已下载部分
+     * @param duplicate  根据摘要判断内容是否重复
+     * @return 下载完成的本地文件, 内容重复时返回null
+     * @throws IOException 传输中断或大小校验失败, 已下载部分保留供下次续传
+     */
+    public File downloadResumable(FTPClient ftpClient, FileInfo fileInfo, String remoteFile, String localPath, MessageDigest digest,
+                                  Predicate<byte[]> duplicate) throws IOException {
+        File target = new File(localPath + File.separator + fileInfo.getName());
+        File part = new File(target.getPath() + PART_EXT);
+        File meta = new File(part.getPath() + META_EXT);
+        remoteFile = new String(remoteFile.getBytes(LOCAL_CHARSET), SERVER_CHARSET);
+
+        long offset = resumeOffset(fileInfo, part, meta);
+        boolean retrieved = false;
+        if (offset < fileInfo.getSize() || fileInfo.getSize() == 0) {
+            if (offset > 0) {
+                log.info("续传文件:{},已下载:{},总大小:{}", fileInfo.getRemoteFile(), offset, fileInfo.getSize());
+            }
+            boolean result = retrieve(ftpClient, remoteFile, part, offset, digest);
+            if (!result && offset > 0) {
+                // 服务器不支持REST时从头下载
+                log.warn("续传失败,从头下载:{},返回:{}", fileInfo.getRemoteFile(), ftpClient.getReplyString());
+                result = retrieve(ftpClient, remoteFile, part, 0, digest);
+            }
+            if (!result) {
+                throw new FtpReplyException("下载失败:" + fileInfo.getRemoteFile() + ",返回:" + ftpClient.getReplyString(), ftpClient.getReplyCode());
+            }
+            retrieved = true;
+        }
+
+        long length = part.length();
+        if (fileInfo.getSize() > 0 && length != fileInfo.getSize()) {
+            if (length > fileInfo.getSize()) {
+                part.delete();
+                meta.delete();
+            }
+            throw new IOException("文件不完整:" + fileInfo.getRemoteFile() + ",期望大小:" + fileInfo.getSize() + ",实际大小:" + length);
+        }
+        if (digest != null && !retrieved) {
+            // 上次已下载完整但未改名
+            digest.reset();
+            digest(digest, part, length);
+        }
+        if (digest != null && duplicate.test(digest.digest())) {
+            part.delete();
+            meta.delete();
+            return null;
+        }
+        NioFiles.commit(part, target);
+        meta.delete();
+        log.info("将：[{}]下载到：[{}]成功,大小:{}", fileInfo.getRemoteFile(), target.getPath(), length);
+        return target;
+    }
+
+    /**
+     * 计算续传位置: .part对应的ftp文件大小和修改时间未变化时返回.part长度, 否则清除旧的.part并重新记录
+     */
+    private long resumeOffset(FileInfo fileInfo, File part, File meta) throws IOException {
+        String expected = fileInfo.getSize() + "\t" + fileInfo.getTimestamp();
+        if (part.exists() && meta.exists()) {
+            String recorded = new String(Files.readAllBytes(meta.toPath()), StandardCharsets.UTF_8).trim();
+            if (expected.equals(recorded) && part.length() <= fileInfo.getSize()) {
+                return part.length();
+            }
+            log.info("ftp文件已变化,丢弃已下载部分:{}", part.getPath());
+        }
+        part.delete();
+        Files.write(meta.toPath(), expected.getBytes(StandardCharsets.UTF_8));
+        return 0;
+    }
+
+    /**
+     * 从offset处下载到.part文件, 数据经直接内存缓冲区写入FileChannel
+     */
+    private boolean retrieve(FTPClient ftpClient, String remoteFile, File part, long offset, MessageDigest digest) throws IOException {
+        ftpClient.setRestartOffset(offset);
+        InputStream in;
+        try {
+            in = ftpClient.retrieveFileStream(remoteFile);
+        } finally {
+            ftpClient.setRestartOffset(0);
+        }
+        if (in == null) {
+            return false;
+        }
+        if (digest != null) {
+            digest.reset();
+            digest(digest, part, offset);
+            in = new DigestInputStream(in, digest);
+        }
+        try (InputStream remote = in) {
+            NioFiles.write(remote, part, offset);
+        }
+        return ftpClient.completePendingCommand();
+    }
+
+    /**
+     * 边下载边解压: ftp数据流直接经解压流写入解压文件, 不落地中间的压缩文件.
+     * 下载字节数与ftp文件大小不一致、压缩格式自带的校验失败或服务器未确认传输完成时删除解压文件并抛出异常
+     *
+     * @param ftpClient    ftp连接
+     * @param fileInfo     ftp文件信息
+     * @param codec        压缩格式
+     * @param remoteFile   ftp文件绝对路径, 下载时不切换工作目录
+     * @param compressPath 解压路径
+     * @param rawFile      同时保留的原始压缩文件, 为null时不保留
+     * @param digest       下载的同时计算压缩数据的摘要, 为null时不计算
+     * @param duplicate    根据摘要判断内容是否重复, 重复时丢弃解压文件
+     * @return 解压后的文件, 内容重复时返回null
+     * @throws IOException
+     */
+    public File downloadDecompressed(FTPClient ftpClient, FileInfo fileInfo, CompressionCodec codec, String remoteFile, String compressPath, File rawFile,
+                                     MessageDigest digest, Predicate<byte[]> duplicate) throws IOException {
+        File target = new File(compressPath + File.separator + Codecs.stripExtension(fileInfo.getName(), codec));
+        File temp = NioFiles.staging(target);
+        File rawTemp = rawFile == null ? null : NioFiles.staging(rawFile);
+        log.info("边下载边解压:{} -> {}", remoteFile, target.getPath());
+        InputStream remote = ftpClient.retrieveFileStream(new String(remoteFile.getBytes(LOCAL_CHARSET), SERVER_CHARSET));
+        if (remote == null) {
+            throw new FtpReplyException("打开ftp文件失败:" + fileInfo.getRemoteFile() + ",返回:" + ftpClient.getReplyString(), ftpClient.getReplyCode());
+        }
+        CountingInputStream counting = new CountingInputStream(remote);
+        boolean success = false;
+        try {
+            InputStream digesting = digest == null ? counting : new DigestInputStream(counting, digest);
+            InputStream source = rawTemp == null ? digesting : new TeeInputStream(digesting, NioFiles.newOutputStream(rawTemp));
+            // 解压流读到结尾时校验格式自带的校验和, 如gzip的CRC32和原始长度; 关闭时释放Inflater等本地内存
+            try (InputStream in = source; OutputStream os = NioFiles.newOutputStream(temp); InputStream decompressed = codec.decompress(in)) {
+                byte[] buffer = BufferPool.CODEC.local();
+                int count;
+                while ((count = decompressed.read(buffer)) != -1) {
+                    os.write(buffer, 0, count);
+                }
+                // 压缩数据之后若还有数据也要读完, 以便校验下载长度
+                if (in.read(buffer) != -1) {
+                    log.warn("压缩数据之后存在多余数据:{}", fileInfo.getRemoteFile());
+                    while (in.read(buffer) != -1) {
+                        // 丢弃
+                    }
+                }
+            }
+            if (!ftpClient.completePendingCommand()) {
+                throw new FtpReplyException("ftp服务器未确认传输完成:" + fileInfo.getRemoteFile() + ",返回:" + ftpClient.getReplyString(), ftpClient.getReplyCode());
+            }
+            if (fileInfo.getSize() > 0 && counting.getBytesRead() != fileInfo.getSize()) {
+                throw new IOException("文件不完整:" + fileInfo.getRemoteFile() + ",期望大小:" + fileInfo.getSize() + ",实际大小:" + counting.getBytesRead());
+            }
+            if (digest != null && duplicate.test(digest.digest())) {
+                // 未改名的临时文件在finally中删除
+                return null;
+            }
+            if (rawTemp != null) {
+                NioFiles.commit(rawTemp, rawFile);
+            }
+            NioFiles.commit(temp, target);
+            success = true;
+        } finally {
+            if (!success) {
+                temp.delete();
+                if (rawTemp != null) {
+                    rawTemp.delete();
+                }
+            }
+        }
+        log.info("将：[{}]下载并解压到：[{}]成功,下载字节数:{}", fileInfo.getRemoteFile(), target.getPath(), counting.getBytesRead());
+        return target;
+    }
+
     /**
      * 登出服务器并断开连接
      *
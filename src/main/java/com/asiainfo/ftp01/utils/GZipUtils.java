@@ -64,14 +64,17 @@ public class GZipUtils {
      * @throws Exception
      */
     public static void compress(File file, boolean delete) throws Exception {
-        FileInputStream fis = new FileInputStream(file);
-        FileOutputStream fos = new FileOutputStream(file.getPath() + EXT);
+        File target = new File(file.getPath() + EXT);
+        File temp = NioFiles.staging(target);
+        InputStream fis = NioFiles.newInputStream(file);
+        OutputStream fos = NioFiles.newOutputStream(temp);
 
         compress(fis, fos);
 
         fis.close();
         fos.flush();
         fos.close();
+        NioFiles.commit(temp, target);
 
         if (delete) {
             file.delete();
@@ -87,12 +90,25 @@ public class GZipUtils {
      */
     public static void compress(InputStream is, OutputStream os)
             throws Exception {
+        compress(is, os, BUFFER);
+    }
+
+    /**
+     * 数据压缩
+     *
+     * @param is
+     * @param os
+     * @param bufferSize 缓冲区大小
+     * @throws Exception
+     */
+    public static void compress(InputStream is, OutputStream os, int bufferSize)
+            throws Exception {
 
         GZIPOutputStream gos = new GZIPOutputStream(os);
 
         int count;
-        byte data[] = new byte[BUFFER];
-        while ((count = is.read(data, 0, BUFFER)) != -1) {
+        byte data[] = buffer(bufferSize);
+        while ((count = is.read(data, 0, bufferSize)) != -1) {
             gos.write(data, 0, count);
         }
 
@@ -167,12 +183,16 @@ public class GZipUtils {
      * @throws Exception
      */
     public static void decompress(File file, String dePath, boolean delete) throws Exception {
-        FileInputStream fis = new FileInputStream(file);
-        FileOutputStream fos = new FileOutputStream(dePath + File.separator + file.getName().replace(EXT, ""));
+        // 先解压到暂存文件, 完整后再改名, 解压路径中不会出现不完整的文件
+        File target = new File(dePath + File.separator + file.getName().replace(EXT, ""));
+        File temp = NioFiles.staging(target);
+        InputStream fis = NioFiles.newInputStream(file);
+        OutputStream fos = NioFiles.newOutputStream(temp);
         decompress(fis, fos);
         fis.close();
         fos.flush();
         fos.close();
+        NioFiles.commit(temp, target);
 
         if (delete) {
             file.delete();
@@ -188,12 +208,25 @@ public class GZipUtils {
      */
     public static void decompress(InputStream is, OutputStream os)
             throws Exception {
+        decompress(is, os, BUFFER);
+    }
+
+    /**
+     * 数据解压缩
+     *
+     * @param is
+     * @param os
+     * @param bufferSize 缓冲区大小
+     * @throws Exception
+     */
+    public static void decompress(InputStream is, OutputStream os, int bufferSize)
+            throws Exception {
 
         GZIPInputStream gis = new GZIPInputStream(is);
 
         int count;
-        byte data[] = new byte[BUFFER];
-        while ((count = gis.read(data, 0, BUFFER)) != -1) {
+        byte data[] = buffer(bufferSize);
+        while ((count = gis.read(data, 0, bufferSize)) != -1) {
             os.write(data, 0, count);
         }
 
@@ -236,5 +269,10 @@ public class GZipUtils {
         decompress(file, dePath, delete);
     }
 
-
+    /**
+     * 默认大小的缓冲区使用线程内复用的数组, 其他大小新建
+     */
+    private static byte[] buffer(int bufferSize) {
+        return bufferSize == BufferPool.CODEC.getBufferSize() ? BufferPool.CODEC.local() : new byte[bufferSize];
+    }
 }
@@ -0,0 +1,254 @@
+package com.asiainfo.ftp01.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 基于NIO的本地文件操作: 文件之间用FileChannel.transferTo/transferFrom拷贝, 不经过java堆;
+ * 同一文件系统内的移动为原子改名. 网络数据流(ftp数据连接为普通Socket, 没有channel)无法零拷贝,
+ * 经共享池中的堆数组和直接内存缓冲区写入文件; 下载线程随周期新建, 缓冲区不随线程分配
+ */
+@Slf4j
+public class NioFiles {
+
+    /**
+     * 直接内存缓冲区大小
+     */
+    private static final int DIRECT_BUFFER = 256 * 1024;
+
+    /**
+     * 暂存文件后缀, 暂存文件名以.开头, 下游按文件名扫描时不会读到写了一半的文件
+     */
+    public static final String STAGING_EXT = ".tmp";
+
+    /**
+     * 最多保留的空闲直接内存缓冲区数, 超出的交给GC回收
+     */
+    private static final int MAX_IDLE_DIRECT_BUFFERS = 32;
+
+    private static final Queue<ByteBuffer> DIRECT_BUFFERS = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicInteger IDLE_DIRECT_BUFFERS = new AtomicInteger();
+
+    private NioFiles() {
+    }
+
+    /**
+     * 打开文件输入流; 与FileInputStream不同, 基于channel的流没有finalize方法, 不会加重GC负担
+     *
+     * @param file 文件
+     * @return
+     * @throws IOException
+     */
+    public static InputStream newInputStream(File file) throws IOException {
+        return Files.newInputStream(file.toPath());
+    }
+
+    /**
+     * 打开文件输出流, 文件已存在时覆盖
+     *
+     * @param file 文件
+     * @return
+     * @throws IOException
+     */
+    public static OutputStream newOutputStream(File file) throws IOException {
+        return Files.newOutputStream(file.toPath());
+    }
+
+    /**
+     * 打开文件输出流
+     *
+     * @param file   文件
+     * @param append 是否追加
+     * @return
+     * @throws IOException
+     */
+    public static OutputStream newOutputStream(File file, boolean append) throws IOException {
+        if (!append) {
+            return newOutputStream(file);
+        }
+        return Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 拷贝文件, 由操作系统在内核中完成(sendfile等), 数据不进入java堆
+     *
+     * @param source 源文件
+     * @param target 目标文件, 已存在时覆盖
+     * @return 拷贝的字节数
+     * @throws IOException
+     */
+    public static long copy(File source, File target) throws IOException {
+        try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * 移动文件: 同一文件系统内为原子改名; 跨文件系统时先拷贝到目标目录的临时文件、刷盘, 再改名并删除源文件
+     *
+     * @param source 源文件
+     * @param target 目标文件, 已存在时覆盖
+     * @throws IOException
+     */
+    public static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.debug("不支持原子移动,改为拷贝:{} -> {}", source.getPath(), target.getPath());
+            File temp = staging(target);
+            copy(source, temp);
+            force(temp);
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(source.toPath());
+        }
+    }
+
+    /**
+     * 目标文件对应的暂存文件: 同一目录下的 .文件名.tmp, 写完后用commit改名为目标文件
+     *
+     * @param target 目标文件
+     * @return 暂存文件
+     */
+    public static File staging(File target) {
+        return new File(target.getParentFile(), "." + target.getName() + STAGING_EXT);
+    }
+
+    /**
+     * 提交暂存文件: 内容刷盘后原子改名为目标文件, 再刷新目录项; 崩溃后目标文件要么是旧内容要么是完整的新内容
+     *
+     * @param temp   暂存文件
+     * @param target 目标文件, 已存在时覆盖
+     * @throws IOException
+     */
+    public static void commit(File temp, File target) throws IOException {
+        force(temp);
+        move(temp, target);
+        forceDirectory(target.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * 把目录项刷到磁盘, 使改名持久化; 不支持打开目录的平台(如Windows)忽略
+     *
+     * @param dir 目录
+     */
+    public static void forceDirectory(File dir) {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("目录刷盘失败:{},{}", dir.getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * 把输入流写入文件的指定位置: 本地文件流用transferFrom在内核中拷贝, 其他流经共享池中的缓冲区拷贝
+     *
+     * @param in       输入流
+     * @param file     文件
+     * @param position 写入位置, 大于0时保留文件中该位置之前的内容
+     * @return 写入的字节数
+     * @throws IOException
+     */
+    public static long write(InputStream in, File file, long position) throws IOException {
+        try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            out.truncate(position);
+            out.position(position);
+            if (in instanceof FileInputStream) {
+                return transferFrom(((FileInputStream) in).getChannel(), out, position);
+            }
+            return copy(in, out);
+        }
+    }
+
+    /**
+     * 从文件channel的当前位置拷贝到末尾, 写入out的position处
+     */
+    private static long transferFrom(FileChannel in, FileChannel out, long position) throws IOException {
+        long total = 0;
+        long count;
+        while ((count = out.transferFrom(in, position + total, in.size() - in.position())) > 0) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * 把输入流写入channel: 读入池中的堆数组, 再经池中的直接内存缓冲区写出, 避免FileChannel为堆缓冲区另建线程内的临时直接内存
+     *
+     * @param in  输入流
+     * @param out 输出
+     * @return 拷贝的字节数
+     * @throws IOException
+     */
+    public static long copy(InputStream in, FileChannel out) throws IOException {
+        byte[] array = BufferPool.TRANSFER.acquire();
+        ByteBuffer buffer = acquireDirect();
+        try {
+            long total = 0;
+            int count;
+            while ((count = in.read(array, 0, Math.min(array.length, buffer.capacity()))) != -1) {
+                buffer.clear();
+                buffer.put(array, 0, count).flip();
+                while (buffer.hasRemaining()) {
+                    total += out.write(buffer);
+                }
+            }
+            return total;
+        } finally {
+            BufferPool.TRANSFER.release(array);
+            releaseDirect(buffer);
+        }
+    }
+
+    private static ByteBuffer acquireDirect() {
+        ByteBuffer buffer = DIRECT_BUFFERS.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(DIRECT_BUFFER);
+        }
+        IDLE_DIRECT_BUFFERS.decrementAndGet();
+        return buffer;
+    }
+
+    private static void releaseDirect(ByteBuffer buffer) {
+        if (IDLE_DIRECT_BUFFERS.incrementAndGet() <= MAX_IDLE_DIRECT_BUFFERS) {
+            DIRECT_BUFFERS.offer(buffer);
+        } else {
+            IDLE_DIRECT_BUFFERS.decrementAndGet();
+        }
+    }
+
+    /**
+     * 把文件内容刷到磁盘
+     *
+     * @param file 文件
+     * @throws IOException
+     */
+    public static void force(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+}
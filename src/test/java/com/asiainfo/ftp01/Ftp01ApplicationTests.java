@@ -5,8 +5,22 @@ import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+/**
+ * 只加载上下文: 不启用调度, 不预热连接池, ftp地址为不可解析的占位地址, 本地文件写到target下, 不会连接生产环境
+ */
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = {
+        "spring.profiles.active=test",
+        "ftp.quartz.enabled=false",
+        "ftp.info.host=ftp.invalid",
+        "ftp.info.username=test",
+        "ftp.info.password=test",
+        "ftp.info.remotePath=outgoing",
+        "ftp.info.poolMinIdle=0",
+        "ftp.info.localPath=target/context-test/ftp-data-temp",
+        "ftp.info.compressPath=target/context-test/data",
+        "ftp.upload.enabled=false",
+        "ftp.upload.pendingFile=target/context-test/.upload-pending"})
 public class Ftp01ApplicationTests {
 
     @Test
@@ -14,4 +28,3 @@ public class Ftp01ApplicationTests {
     }
 
 }
-
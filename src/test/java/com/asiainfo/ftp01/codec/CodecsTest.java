@@ -0,0 +1,79 @@
+package com.asiainfo.ftp01.codec;
+
+import com.asiainfo.ftp01.utils.GZipUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 压缩格式注册表
+ */
+public class CodecsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void selectsByNameAndExtension() {
+        assertSame(Codecs.GZIP, Codecs.forName("gzip"));
+        assertSame(Codecs.PARALLEL_GZIP, Codecs.forCompression("PGZIP"));
+        assertSame(Codecs.BZIP2, Codecs.forFileName("a.txt.bz2"));
+        assertNull(Codecs.forFileName("a.txt"));
+        assertNull(Codecs.forName(" "));
+        assertEquals("a.txt", Codecs.stripExtension("a.txt.gz", Codecs.GZIP));
+    }
+
+    @Test
+    public void detectsByHeader() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream os = Codecs.XZ.compress(out)) {
+            os.write("abc".getBytes());
+        }
+        byte[] header = out.toByteArray();
+        assertSame(Codecs.XZ, Codecs.detect(header, header.length));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lz4IsRejectedForCompression() {
+        assertFalse(Codecs.LZ4.canCompress());
+        Codecs.forCompression("lz4");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownCodecIsRejected() {
+        Codecs.forName("rar");
+    }
+
+    @Test
+    public void recompressesAndDecompressesFiles() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append("dev").append(i % 7).append(',').append(i).append('\n');
+        }
+        byte[] data = text.toString().getBytes("UTF-8");
+        File gz = folder.newFile("a.txt.gz");
+        Files.write(gz.toPath(), GZipUtils.compress(data));
+        File output = folder.newFolder("out");
+        for (CompressionCodec codec : new CompressionCodec[]{Codecs.BZIP2, Codecs.XZ, Codecs.PARALLEL_GZIP, Codecs.GZIP}) {
+            File archive = Codecs.recompress(gz, codec);
+            assertEquals("a.txt" + codec.getExtension(), archive.getName());
+            File target = Codecs.decompress(archive, output.getPath(), false);
+            assertArrayEquals(codec.getName(), data, Files.readAllBytes(target.toPath()));
+            gz = archive;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.asiainfo.ftp01.codec;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 并行gzip: 每块一个gzip成员, 拼接后是合法的gzip文件
+ */
+public class ParallelGzipOutputStreamTest {
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    @Test
+    public void concatenatedMembersDecompressToInput() throws IOException {
+        byte[] data = text(10_000);
+        byte[] compressed = compress(data, 1000, 3);
+        assertArrayEquals(data, read(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+        assertArrayEquals(data, read(new GzipCompressorInputStream(new ByteArrayInputStream(compressed), true)));
+    }
+
+    @Test
+    public void eachBlockIsOneMember() throws IOException {
+        byte[] data = text(2500);
+        byte[] compressed = compress(data, 1000, 2);
+        // 只读第一个成员时得到第一块
+        byte[] first = read(new GzipCompressorInputStream(new ByteArrayInputStream(compressed), false));
+        assertEquals(1000, first.length);
+        assertArrayEquals(java.util.Arrays.copyOf(data, 1000), first);
+    }
+
+    @Test
+    public void writesByteByByteAndIncompressibleData() throws IOException {
+        byte[] data = new byte[5000];
+        new Random(1).nextBytes(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream os = new ParallelGzipOutputStream(out, EXECUTOR, 700, 2)) {
+            for (byte b : data) {
+                os.write(b);
+            }
+        }
+        assertArrayEquals(data, read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    @Test
+    public void emptyInputIsValidGzip() throws IOException {
+        byte[] compressed = compress(new byte[0], 1000, 2);
+        assertEquals(0, read(new GZIPInputStream(new ByteArrayInputStream(compressed))).length);
+    }
+
+    private static byte[] compress(byte[] data, int blockSize, int maxInFlight) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream os = new ParallelGzipOutputStream(out, EXECUTOR, blockSize, maxInFlight)) {
+            os.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] text(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i % 97 == 0 ? '\n' : 'a' + i % 26);
+        }
+        return data;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        try (InputStream is = in) {
+            while ((n = is.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,223 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.DownloadReport;
+import com.asiainfo.ftp01.model.ExecutorInfo;
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.RetryInfo;
+import com.asiainfo.ftp01.model.ScheduleInfo;
+import com.asiainfo.ftp01.model.ThrottleInfo;
+import com.asiainfo.ftp01.pool.FtpClientPool;
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.throttle.TransferThrottle;
+import com.asiainfo.ftp01.utils.FtpUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.net.ftp.FTPClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockftpserver.core.command.Command;
+import org.mockftpserver.core.session.Session;
+import org.mockftpserver.fake.FakeFtpServer;
+import org.mockftpserver.fake.UserAccount;
+import org.mockftpserver.fake.command.RetrCommandHandler;
+import org.mockftpserver.fake.filesystem.DirectoryEntry;
+import org.mockftpserver.fake.filesystem.FileEntry;
+import org.mockftpserver.fake.filesystem.UnixFakeFileSystem;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 下载引擎与进程内FakeFtpServer: 会话名额不足时列表与下载轮流使用会话; 数据连接读超时后退避重试
+ */
+public class DownloadEngineTest {
+
+    private static final int FILES = 6;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FtpUtils ftpUtils = new FtpUtils();
+
+    private final DownloadEngine engine = new DownloadEngine();
+
+    private final List<FtpClientPool> pools = new ArrayList<>();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private FakeFtpServer server;
+
+    @Before
+    public void setUp() {
+        UnixFakeFileSystem fileSystem = new UnixFakeFileSystem();
+        fileSystem.add(new DirectoryEntry("/home/u/outgoing"));
+        for (int i = 0; i < FILES; i++) {
+            FileEntry entry = new FileEntry("/home/u/outgoing/" + name(i));
+            entry.setContents(content(i));
+            fileSystem.add(entry);
+        }
+        server = new FakeFtpServer();
+        server.setServerControlPort(0);
+        server.addUserAccount(new UserAccount("u", "u", "/home/u"));
+        server.setFileSystem(fileSystem);
+        server.start();
+
+        RetryPolicy retryPolicy = new RetryPolicy();
+        RetryInfo retryInfo = new RetryInfo();
+        retryInfo.setInitialBackoffMillis(100);
+        ReflectionTestUtils.setField(retryPolicy, "retryInfo", retryInfo);
+        TransferThrottle throttle = new TransferThrottle();
+        ReflectionTestUtils.setField(throttle, "throttleInfo", new ThrottleInfo());
+        throttle.start();
+        TransferExecutors executors = new TransferExecutors();
+        ReflectionTestUtils.setField(executors, "executorInfo", new ExecutorInfo());
+        executors.start();
+        ReflectionTestUtils.setField(engine, "ftpUtils", ftpUtils);
+        ReflectionTestUtils.setField(engine, "metrics", new PipelineMetrics(registry));
+        ReflectionTestUtils.setField(engine, "throttle", throttle);
+        ReflectionTestUtils.setField(engine, "retryPolicy", retryPolicy);
+        ReflectionTestUtils.setField(engine, "executors", executors);
+    }
+
+    @After
+    public void tearDown() {
+        pools.forEach(FtpClientPool::close);
+        server.stop();
+    }
+
+    @Test
+    public void singleSessionIsSharedWithTheLister() throws Exception {
+        FtpInfo ftpInfo = ftpInfo();
+        ftpInfo.setMaxSessions(1);
+        ftpInfo.setPoolBorrowTimeoutMillis(200);
+        SourceContext source = source(ftpInfo);
+        FileFeed feed = new FileFeed(Integer.MAX_VALUE);
+        AtomicReference<Exception> listError = new AtomicReference<>();
+        Thread lister = new Thread(() -> {
+            try {
+                // 与RemoteLister相同, 列出每个目录时持有唯一的会话, 时间超过下载线程等待会话的超时时间
+                for (int directory = 0; directory < 2; directory++) {
+                    FTPClient client = source.getPool().borrow();
+                    try {
+                        for (int i = directory * 3; i < directory * 3 + 3; i++) {
+                            feed.accept(fileInfo(i));
+                        }
+                        Thread.sleep(600);
+                    } finally {
+                        source.getPool().release(client);
+                    }
+                }
+            } catch (Exception e) {
+                listError.set(e);
+            } finally {
+                feed.close();
+            }
+        });
+        lister.start();
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        DownloadReport report = engine.download(source, feed, 1, (fileInfo, localFile) -> handled.add(localFile.getName()));
+        lister.join();
+
+        // 下载线程等待会话超时后不退出, 列表线程再次获取会话时下载线程先归还
+        assertNull(listError.get());
+        assertEquals(FILES, report.getTotal());
+        assertEquals(FILES, report.getSucceeded());
+        assertEquals(0, report.getFailed());
+        assertEquals(FILES, handled.size());
+        for (int i = 0; i < FILES; i++) {
+            assertTrue(name(i), new File(ftpInfo.getLocalPath(), name(i)).exists());
+        }
+    }
+
+    @Test
+    public void stalledTransferTimesOutAndIsRetried() throws Exception {
+        // 第一次RETR打开数据连接后不发送数据, 也不关闭连接. FakeFtpServer的RETR不支持REST, 不发送部分数据, 重试时从头下载
+        AtomicInteger stalls = new AtomicInteger(1);
+        server.setCommandHandler("RETR", new RetrCommandHandler() {
+            @Override
+            protected void handle(Command command, Session session) {
+                if (stalls.getAndDecrement() <= 0) {
+                    super.handle(command, session);
+                    return;
+                }
+                session.sendReply(150, "stalled");
+                session.openDataConnection();
+                try {
+                    Thread.sleep(3000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                session.closeDataConnection();
+            }
+        });
+        FtpInfo ftpInfo = ftpInfo();
+        ftpInfo.setDataTimeoutMillis(300);
+        SourceContext source = source(ftpInfo);
+        FileFeed feed = new FileFeed(Integer.MAX_VALUE);
+        feed.accept(fileInfo(0));
+        feed.close();
+
+        long start = System.currentTimeMillis();
+        DownloadReport report = engine.download(source, feed, 1, (fileInfo, localFile) -> {
+        });
+
+        // 读超时为暂时性失败, 经feed.retry退避后重新下载成功, 不必等到服务器关闭数据连接
+        assertTrue(System.currentTimeMillis() - start < 3000);
+        assertEquals(1, report.getSucceeded());
+        assertEquals(0, report.getFailed());
+        assertEquals(1.0, registry.get("ftp.files.retried").counter().count(), 0);
+        assertEquals(content(0), new String(Files.readAllBytes(new File(ftpInfo.getLocalPath(), name(0)).toPath()), StandardCharsets.UTF_8));
+    }
+
+    private FtpInfo ftpInfo() {
+        FtpInfo ftpInfo = new FtpInfo();
+        ftpInfo.setHost("127.0.0.1");
+        ftpInfo.setPort(server.getServerControlPort());
+        ftpInfo.setUsername("u");
+        ftpInfo.setPassword("u");
+        ftpInfo.setRemotePath("outgoing");
+        ftpInfo.setLocalPath(new File(folder.getRoot(), "temp").getPath());
+        ftpInfo.setCompressPath(new File(folder.getRoot(), "data").getPath());
+        new File(ftpInfo.getLocalPath()).mkdirs();
+        return ftpInfo;
+    }
+
+    private SourceContext source(FtpInfo ftpInfo) {
+        FtpClientPool pool = new FtpClientPool(ftpInfo, ftpUtils);
+        pools.add(pool);
+        return new SourceContext(ftpInfo, new ScheduleInfo(), pool, null, null, null);
+    }
+
+    private static FileInfo fileInfo(int i) {
+        return new FileInfo("outgoing", name(i), content(i).length(), 0);
+    }
+
+    private static String name(int i) {
+        return "dev_" + i + ".txt";
+    }
+
+    private static String content(int i) {
+        StringBuilder content = new StringBuilder();
+        for (int line = 0; line < 100; line++) {
+            content.append(i).append('|').append(line).append('\n');
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.model.FileInfo;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 下载队列: 退回、退避重试与中止
+ */
+public class FileFeedTest {
+
+    private final FileInfo a = new FileInfo("in", "a.txt", 1, 1);
+    private final FileInfo b = new FileInfo("in", "b.txt", 1, 1);
+    private final FileInfo c = new FileInfo("in", "c.txt", 1, 1);
+
+    @Test
+    public void returnedFilesComeFirst() throws InterruptedException {
+        FileFeed feed = FileFeed.of(Arrays.asList(a, b));
+        assertSame(a, feed.take());
+        feed.requeue(a);
+        assertSame(a, feed.take());
+        assertSame(b, feed.take());
+        assertNull(feed.take());
+    }
+
+    @Test
+    public void retryWaitsForBackoffWithoutBlockingOtherFiles() throws InterruptedException {
+        FileFeed feed = new FileFeed(10);
+        feed.accept(a);
+        feed.accept(b);
+        assertSame(a, feed.take());
+        long start = System.nanoTime();
+        feed.retry(a, 300);
+        // 退避期间先领取其他文件
+        assertSame(b, feed.take());
+        feed.close();
+        // 列表已结束, 仍等待重试的文件
+        assertSame(a, feed.take());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+        assertNull(feed.take());
+    }
+
+    @Test
+    public void retriesAreOrderedByDueTime() throws InterruptedException {
+        FileFeed feed = new FileFeed(10);
+        feed.close();
+        feed.retry(a, 400);
+        feed.retry(b, 100);
+        assertSame(b, feed.take());
+        assertSame(a, feed.take());
+        assertNull(feed.take());
+    }
+
+    @Test
+    public void abortDropsRemainingFiles() throws InterruptedException {
+        FileFeed feed = new FileFeed(10);
+        feed.accept(a);
+        feed.accept(b);
+        feed.retry(c, 10000);
+        feed.requeue(c);
+        feed.abort();
+        assertNull(feed.take());
+        assertFalse(feed.accept(a));
+        assertEquals(3, feed.getOffered());
+        // 队列中的2个、等待重试和退回的各1个、中止后放入的1个
+        assertEquals(5, feed.getDropped());
+    }
+}
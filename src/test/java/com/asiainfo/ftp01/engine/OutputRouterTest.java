@@ -0,0 +1,121 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.index.CommitJournal;
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.ScheduleInfo;
+import com.asiainfo.ftp01.source.SourceContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 输出文件切分的行边界, 重新切分时清理旧的切分文件
+ */
+public class OutputRouterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void splitsAfterNewlinePastSplitSize() throws IOException {
+        // 每行4字节
+        File file = write("aaa\nbbb\nccc\nddd\n");
+        assertEquals(Arrays.asList(0L, 8L, 16L), OutputRouter.boundaries(file, 5));
+        assertEquals(Arrays.asList(0L, 4L, 8L, 12L, 16L), OutputRouter.boundaries(file, 4));
+        assertEquals(Arrays.asList(0L, 4L, 8L, 12L, 16L), OutputRouter.boundaries(file, 1));
+    }
+
+    @Test
+    public void lastChunkWithoutTrailingNewline() throws IOException {
+        File file = write("aaa\nbbb\ncc");
+        assertEquals(Arrays.asList(0L, 4L, 8L, 10L), OutputRouter.boundaries(file, 4));
+        assertEquals(Arrays.asList(0L, 8L, 10L), OutputRouter.boundaries(file, 6));
+    }
+
+    @Test
+    public void lineLongerThanSplitSizeStaysWhole() throws IOException {
+        File file = write("a\n" + repeat('x', 100) + "\nb\n");
+        assertEquals(Arrays.asList(0L, 2L, 103L, 105L), OutputRouter.boundaries(file, 2));
+        // 没有换行符时整个文件为一段
+        File single = write(repeat('y', 300));
+        assertEquals(Arrays.asList(0L, 300L), OutputRouter.boundaries(single, 10));
+    }
+
+    @Test
+    public void newlineAcrossReadBuffers() throws IOException {
+        // 换行符在第一次读取的缓冲区之后
+        String line = repeat('z', 300 * 1024) + "\n";
+        File file = write(line + line + "tail");
+        List<Long> bounds = OutputRouter.boundaries(file, 10);
+        assertEquals(Arrays.asList(0L, (long) line.length(), 2L * line.length(), 2L * line.length() + 4), bounds);
+    }
+
+    @Test
+    public void chunkNameKeepsExtension() {
+        assertEquals("a_0001.txt", OutputRouter.chunkName("a.txt", 1));
+        assertEquals("a.b_0012.csv", OutputRouter.chunkName("a.b.csv", 12));
+        assertEquals("noext_0002", OutputRouter.chunkName("noext", 2));
+    }
+
+    @Test
+    public void resplitRemovesStaleChunks() throws Exception {
+        FtpInfo ftpInfo = new FtpInfo();
+        ftpInfo.setCompressPath(folder.newFolder("data").getPath());
+        ftpInfo.setSplitThreads(2);
+        OutputRouter router = new OutputRouter();
+        ReflectionTestUtils.setField(router, "ftpInfo", ftpInfo);
+        ReflectionTestUtils.setField(router, "metrics", new PipelineMetrics(new SimpleMeterRegistry()));
+        router.start();
+        try (CommitJournal journal = new CommitJournal(new File(folder.getRoot(), "journal"))) {
+            SourceContext source = new SourceContext(ftpInfo, new ScheduleInfo(), null, null, journal, null);
+            FileInfo fileInfo = new FileInfo("in", "a.txt", 16, 60000);
+            File directory = new File(ftpInfo.getCompressPath());
+            ftpInfo.setSplitSize(4);
+            assertEquals(4, router.route(source, fileInfo, output(directory, "aaa\nbbb\nccc\nddd\n")).size());
+
+            // 切分大小调大后重新处理, 只剩两段, 上次的第3、4段被删除
+            ftpInfo.setSplitSize(8);
+            List<File> chunks = router.route(source, fileInfo, output(directory, "aaa\nbbb\nccc\nddd\n"));
+            assertEquals(Arrays.asList(new File(directory, "a_0001.txt"), new File(directory, "a_0002.txt")), chunks);
+            assertEquals("ccc\nddd\n", new String(Files.readAllBytes(chunks.get(1).toPath()), StandardCharsets.UTF_8));
+            assertFalse(new File(directory, "a_0003.txt").exists());
+            assertFalse(new File(directory, "a_0004.txt").exists());
+        } finally {
+            router.shutdown();
+        }
+    }
+
+    private static File output(File directory, String content) throws IOException {
+        File file = new File(directory, "a.txt");
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private File write(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String repeat(char c, int n) {
+        char[] chars = new char[n];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,82 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.model.RetryInfo;
+import com.asiainfo.ftp01.utils.FtpReplyException;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 下载失败分类与退避时间
+ */
+public class RetryPolicyTest {
+
+    private final RetryInfo retryInfo = new RetryInfo();
+
+    private final RetryPolicy policy = new RetryPolicy();
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(policy, "retryInfo", retryInfo);
+    }
+
+    @Test
+    public void classifiesFailures() {
+        assertTrue(policy.isTransient(new FtpReplyException("busy", 421)));
+        assertTrue(policy.isTransient(new FtpReplyException("unavailable", 450)));
+        assertFalse(policy.isTransient(new FtpReplyException("not found", 550)));
+        assertTrue(policy.isTransient(new FTPConnectionClosedException()));
+        assertTrue(policy.isTransient(new SocketTimeoutException()));
+        assertTrue(policy.isTransient(new EOFException()));
+        assertFalse(policy.isTransient(new ZipException("crc")));
+        // 包装的原因同样分类
+        assertFalse(policy.isTransient(new IOException("wrapped", new ZipException("crc"))));
+        assertTrue(policy.isTransient(new UncheckedIOException(new SocketTimeoutException())));
+        // 其他IO异常默认重试, 运行时异常不重试
+        assertTrue(policy.isTransient(new IOException("other")));
+        assertFalse(policy.isTransient(new IllegalStateException()));
+    }
+
+    @Test
+    public void retriesUpToMaxAttempts() {
+        retryInfo.setMaxAttempts(3);
+        IOException e = new SocketTimeoutException();
+        assertTrue(policy.shouldRetry(e, 1));
+        assertTrue(policy.shouldRetry(e, 2));
+        assertFalse(policy.shouldRetry(e, 3));
+        assertFalse(policy.shouldRetry(new FtpReplyException("not found", 550), 1));
+    }
+
+    @Test
+    public void backoffGrowsWithJitterUpToCeiling() {
+        retryInfo.setInitialBackoffMillis(1000);
+        retryInfo.setBackoffMultiplier(2.0);
+        retryInfo.setMaxBackoffMillis(5000);
+        for (int i = 0; i < 200; i++) {
+            assertRange(policy.backoff(1), 500, 1000);
+            assertRange(policy.backoff(2), 1000, 2000);
+            assertRange(policy.backoff(3), 2000, 4000);
+            assertRange(policy.backoff(4), 2500, 5000);
+            assertRange(policy.backoff(20), 2500, 5000);
+        }
+        retryInfo.setInitialBackoffMillis(0);
+        assertEquals(0, policy.backoff(1));
+    }
+
+    private static void assertRange(long value, long min, long max) {
+        assertTrue(value + " not in [" + min + "," + max + "]", value >= min && value <= max);
+    }
+}
@@ -0,0 +1,183 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.index.SyncIndex;
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.PostAction;
+import com.asiainfo.ftp01.model.ScheduleInfo;
+import com.asiainfo.ftp01.model.SyncStatus;
+import com.asiainfo.ftp01.pool.FtpClientPool;
+import com.asiainfo.ftp01.source.SourceContext;
+import com.asiainfo.ftp01.utils.FtpUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockftpserver.fake.FakeFtpServer;
+import org.mockftpserver.fake.UserAccount;
+import org.mockftpserver.fake.filesystem.DirectoryEntry;
+import org.mockftpserver.fake.filesystem.FileEntry;
+import org.mockftpserver.fake.filesystem.UnixFakeFileSystem;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 服务器上的删除和改名: 流水线批量命令的应答对应到各个文件, 部分失败时只删除成功文件的同步记录
+ */
+public class ServerCleanerTest {
+
+    private static final String HOME = "/home/u";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FtpUtils ftpUtils = new FtpUtils();
+
+    private final ServerCleaner cleaner = new ServerCleaner();
+
+    private UnixFakeFileSystem fileSystem;
+
+    private FakeFtpServer server;
+
+    private FtpClientPool pool;
+
+    private SyncIndex syncIndex;
+
+    @Before
+    public void setUp() {
+        fileSystem = new UnixFakeFileSystem();
+        fileSystem.add(new DirectoryEntry(HOME + "/outgoing"));
+        server = new FakeFtpServer();
+        server.setServerControlPort(0);
+        server.addUserAccount(new UserAccount("u", "u", HOME));
+        server.setFileSystem(fileSystem);
+        server.start();
+        ReflectionTestUtils.setField(cleaner, "ftpUtils", ftpUtils);
+        ReflectionTestUtils.setField(cleaner, "metrics", new PipelineMetrics(new SimpleMeterRegistry()));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (pool != null) {
+            pool.close();
+        }
+        if (syncIndex != null) {
+            syncIndex.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void relativeDirectory() {
+        assertEquals("", ServerCleaner.relativeDirectory("outgoing", "outgoing"));
+        assertEquals("a", ServerCleaner.relativeDirectory("outgoing", "outgoing/a"));
+        assertEquals("a/x", ServerCleaner.relativeDirectory("outgoing/", "outgoing/a/x"));
+        assertEquals("a/x", ServerCleaner.relativeDirectory("/data/in", "/data/in/a/x"));
+        assertEquals("", ServerCleaner.relativeDirectory("outgoing", "outgoing2/a"));
+    }
+
+    @Test
+    public void deleteBatchWithPartialFailure() throws IOException {
+        List<FileInfo> files = Arrays.asList(put("outgoing", "a.gz"), put("outgoing", "b.gz"), missing("outgoing", "c.gz"),
+                put("outgoing", "d.gz"), put("outgoing", "e.gz"));
+        SourceContext source = source(PostAction.DELETE, files);
+
+        cleaner.clean(source, files);
+
+        // 每批2条命令, 第二批中的第二个文件不存在
+        for (FileInfo fileInfo : files) {
+            assertFalse(fileInfo.getName(), fileSystem.exists(HOME + "/" + fileInfo.getRemoteFile()));
+        }
+        assertRecords(files, "c.gz");
+    }
+
+    @Test
+    public void moveKeepsSubdirectoriesWithPartialFailure() throws IOException {
+        List<FileInfo> files = Arrays.asList(put("outgoing", "a.gz"), put("outgoing/x", "b.gz"), missing("outgoing/x", "c.gz"),
+                put("outgoing/y", "b.gz"), put("outgoing/x/deep", "d.gz"));
+        SourceContext source = source(PostAction.MOVE, files);
+
+        cleaner.clean(source, files);
+
+        // 每个目录的MKD只发送一次, 分布在不同批次中, 应答序号仍对应到各文件的RNTO
+        assertTrue(fileSystem.exists(HOME + "/outgoing/done/a.gz"));
+        assertTrue(fileSystem.exists(HOME + "/outgoing/done/x/b.gz"));
+        assertTrue(fileSystem.exists(HOME + "/outgoing/done/y/b.gz"));
+        assertTrue(fileSystem.exists(HOME + "/outgoing/done/x/deep/d.gz"));
+        assertFalse(fileSystem.exists(HOME + "/outgoing/done/x/c.gz"));
+        // 不同子目录下的同名文件没有互相覆盖
+        assertEquals("outgoing/x/b.gz", content(HOME + "/outgoing/done/x/b.gz"));
+        assertEquals("outgoing/y/b.gz", content(HOME + "/outgoing/done/y/b.gz"));
+        assertFalse(fileSystem.exists(HOME + "/outgoing/x/b.gz"));
+        assertRecords(files, "c.gz");
+    }
+
+    /**
+     * 成功处理的文件删除同步记录, 失败的文件保留
+     */
+    private void assertRecords(List<FileInfo> files, String failed) {
+        for (FileInfo fileInfo : files) {
+            if (fileInfo.getName().equals(failed)) {
+                assertNotNull(fileInfo.getRemoteFile(), syncIndex.get(fileInfo.getRemoteFile()));
+            } else {
+                assertNull(fileInfo.getRemoteFile(), syncIndex.get(fileInfo.getRemoteFile()));
+            }
+        }
+        assertEquals(1, syncIndex.size());
+    }
+
+    private SourceContext source(PostAction action, List<FileInfo> files) throws IOException {
+        FtpInfo ftpInfo = new FtpInfo();
+        ftpInfo.setHost("127.0.0.1");
+        ftpInfo.setPort(server.getServerControlPort());
+        ftpInfo.setUsername("u");
+        ftpInfo.setPassword("u");
+        ftpInfo.setRemotePath("outgoing");
+        ftpInfo.setPostAction(action);
+        ftpInfo.setPostActionBatchSize(2);
+        pool = new FtpClientPool(ftpInfo, ftpUtils);
+        // 登录后得到登录目录, 相对路径才能转换为绝对路径
+        pool.prewarm();
+        syncIndex = new SyncIndex(new File(folder.getRoot(), "sync.log"));
+        for (FileInfo fileInfo : files) {
+            syncIndex.mark(fileInfo, SyncStatus.DOWNLOADED);
+        }
+        return new SourceContext(ftpInfo, new ScheduleInfo(), pool, syncIndex, null, null);
+    }
+
+    private FileInfo put(String path, String name) {
+        FileEntry entry = new FileEntry(HOME + "/" + path + "/" + name);
+        entry.setContents(path + "/" + name);
+        fileSystem.add(entry);
+        return missing(path, name);
+    }
+
+    private static FileInfo missing(String path, String name) {
+        return new FileInfo(path, name, path.length() + name.length() + 1, 60000);
+    }
+
+    private String content(String path) {
+        try {
+            byte[] bytes = new byte[1024];
+            int count = ((FileEntry) fileSystem.getEntry(path)).createInputStream().read(bytes);
+            return new String(bytes, 0, count);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
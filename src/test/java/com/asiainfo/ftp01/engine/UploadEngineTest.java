@@ -0,0 +1,107 @@
+package com.asiainfo.ftp01.engine;
+
+import com.asiainfo.ftp01.metrics.PipelineMetrics;
+import com.asiainfo.ftp01.model.DownloadReport;
+import com.asiainfo.ftp01.model.ExecutorInfo;
+import com.asiainfo.ftp01.model.FtpInfo;
+import com.asiainfo.ftp01.model.UploadInfo;
+import com.asiainfo.ftp01.utils.FtpUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockftpserver.fake.FakeFtpServer;
+import org.mockftpserver.fake.UserAccount;
+import org.mockftpserver.fake.filesystem.DirectoryEntry;
+import org.mockftpserver.fake.filesystem.Permissions;
+import org.mockftpserver.fake.filesystem.UnixFakeFileSystem;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 上传引擎与进程内FakeFtpServer: 创建失败的远程目录不缓存, 下游恢复后重新创建
+ */
+public class UploadEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final UploadEngine engine = new UploadEngine();
+
+    private UnixFakeFileSystem fileSystem;
+
+    private DirectoryEntry home;
+
+    private FakeFtpServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        fileSystem = new UnixFakeFileSystem();
+        home = new DirectoryEntry("/home/u");
+        fileSystem.add(home);
+        server = new FakeFtpServer();
+        server.setServerControlPort(0);
+        server.addUserAccount(new UserAccount("u", "u", "/home/u"));
+        server.setFileSystem(fileSystem);
+        server.start();
+
+        FtpInfo target = new FtpInfo();
+        target.setHost("127.0.0.1");
+        target.setPort(server.getServerControlPort());
+        target.setUsername("u");
+        target.setPassword("u");
+        target.setRemotePath("/home/u/upload/in");
+        target.setConcurrency(1);
+        UploadInfo uploadInfo = new UploadInfo();
+        uploadInfo.setEnabled(true);
+        uploadInfo.setTarget(target);
+        uploadInfo.setSourceDirectory(true);
+        uploadInfo.setPendingFile(new File(folder.getRoot(), "pending").getPath());
+        TransferExecutors executors = new TransferExecutors();
+        ReflectionTestUtils.setField(executors, "executorInfo", new ExecutorInfo());
+        executors.start();
+        ReflectionTestUtils.setField(engine, "uploadInfo", uploadInfo);
+        ReflectionTestUtils.setField(engine, "ftpUtils", new FtpUtils());
+        ReflectionTestUtils.setField(engine, "metrics", new PipelineMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(engine, "executors", executors);
+        engine.start();
+    }
+
+    @After
+    public void tearDown() {
+        engine.close();
+        server.stop();
+    }
+
+    @Test
+    public void failedDirectoriesAreNotCached() throws IOException {
+        File local = folder.newFile("a.txt");
+        try (FileOutputStream out = new FileOutputStream(local)) {
+            out.write("a".getBytes(StandardCharsets.UTF_8));
+        }
+        // 登录目录不可写, 各级MKD都失败
+        home.setPermissions(new Permissions("r-xr-xr-x"));
+        DownloadReport report = engine.upload(Collections.singletonList(engine.enqueue("s1", local)));
+        assertEquals(1, report.getFailed());
+        assertFalse(fileSystem.exists("/home/u/upload"));
+
+        // 下游恢复后, 失败的文件随下一批上传, 各级目录重新创建
+        home.setPermissions(new Permissions("rwxrwxrwx"));
+        report = engine.upload(Collections.emptyList());
+        assertEquals(1, report.getSucceeded());
+        assertTrue(fileSystem.exists("/home/u/upload/in/s1/a.txt"));
+    }
+}
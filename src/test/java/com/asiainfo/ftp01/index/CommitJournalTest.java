@@ -0,0 +1,123 @@
+package com.asiainfo.ftp01.index;
+
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.SyncStatus;
+import com.asiainfo.ftp01.utils.NioFiles;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 提交日志的重启恢复
+ */
+public class CommitJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recoverDeletesOutputsOfUncommittedFiles() throws IOException {
+        File journalFile = new File(folder.getRoot(), "journal");
+        FileInfo committed = new FileInfo("in", "a.txt.gz", 10, 60000);
+        FileInfo marked = new FileInfo("in", "b.txt.gz", 20, 60000);
+        FileInfo unfinished = new FileInfo("in", "c.txt.gz", 30, 60000);
+        File a = folder.newFile("a.txt");
+        File b = folder.newFile("b.txt");
+        File c = folder.newFile("c.txt");
+        File chunk1 = folder.newFile("c_0001.txt");
+        File chunk2 = folder.newFile("c_0002.txt");
+        File chunk2Staging = NioFiles.staging(chunk2);
+        assertTrue(chunk2Staging.createNewFile());
+        try (SyncIndex syncIndex = new SyncIndex(new File(folder.getRoot(), "sync"))) {
+            try (CommitJournal journal = new CommitJournal(journalFile)) {
+                journal.begin(committed, Collections.singletonList(a));
+                journal.begin(marked, Collections.singletonList(b));
+                journal.begin(unfinished, Collections.singletonList(c));
+                journal.extend(unfinished, Arrays.asList(chunk1, chunk2));
+                journal.commit(committed);
+                // 同步索引已标记但C记录丢失
+                syncIndex.mark(marked, SyncStatus.DOWNLOADED);
+            }
+            // 进程中断时留下的不完整行
+            try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+                out.write("B\t40\t".getBytes(StandardCharsets.UTF_8));
+            }
+            try (CommitJournal journal = new CommitJournal(journalFile)) {
+                assertEquals(1, journal.recover(syncIndex));
+            }
+            try (CommitJournal journal = new CommitJournal(journalFile)) {
+                assertEquals(0, journal.recover(syncIndex));
+            }
+        }
+        assertTrue(a.exists());
+        assertTrue(b.exists());
+        assertFalse(c.exists());
+        assertFalse(chunk1.exists());
+        assertFalse(chunk2.exists());
+        assertFalse(chunk2Staging.exists());
+    }
+
+    @Test
+    public void extendIgnoresFilesNotBegun() throws IOException {
+        File journalFile = new File(folder.getRoot(), "journal");
+        File output = folder.newFile("x.txt");
+        try (CommitJournal journal = new CommitJournal(journalFile)) {
+            journal.extend(new FileInfo("in", "x.txt", 1, 1), Collections.singletonList(output));
+        }
+        try (SyncIndex syncIndex = new SyncIndex(new File(folder.getRoot(), "sync"));
+             CommitJournal journal = new CommitJournal(journalFile)) {
+            assertEquals(0, journal.recover(syncIndex));
+        }
+        assertTrue(output.exists());
+    }
+
+    @Test
+    public void concurrentBeginsAreAllRecorded() throws Exception {
+        File journalFile = new File(folder.getRoot(), "journal");
+        int files = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<File> outputs = new ArrayList<>();
+        try (CommitJournal journal = new CommitJournal(journalFile)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < files; i++) {
+                File output = folder.newFile("f" + i + ".txt");
+                outputs.add(output);
+                FileInfo fileInfo = new FileInfo("in", output.getName(), i, 60000);
+                futures.add(executor.submit(() -> {
+                    journal.begin(fileInfo, Collections.singletonList(output));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        try (SyncIndex syncIndex = new SyncIndex(new File(folder.getRoot(), "sync"));
+             CommitJournal journal = new CommitJournal(journalFile)) {
+            assertEquals(files, journal.recover(syncIndex));
+        }
+        for (File output : outputs) {
+            assertFalse(output.getName(), output.exists());
+        }
+    }
+}
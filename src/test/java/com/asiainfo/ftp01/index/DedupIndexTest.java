@@ -0,0 +1,73 @@
+package com.asiainfo.ftp01.index;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 内容去重索引: 扩容与重启加载
+ */
+public class DedupIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void findsEveryEntryAfterRehashAndRestart() throws IOException {
+        File file = new File(folder.getRoot(), "dedup");
+        int entries = 5000;
+        try (DedupIndex index = new DedupIndex(file)) {
+            Random random = new Random(1);
+            for (int i = 0; i < entries; i++) {
+                index.add(i % 10, random.nextLong());
+            }
+            // 重复添加不写入
+            index.add(0, new Random(1).nextLong());
+            assertEquals(entries, index.size());
+        }
+        assertEquals(entries * 16L, file.length());
+        try (DedupIndex index = new DedupIndex(file)) {
+            assertEquals(entries, index.size());
+            Random random = new Random(1);
+            for (int i = 0; i < entries; i++) {
+                long fingerprint = random.nextLong();
+                assertTrue(index.contains(i % 10, fingerprint));
+                assertFalse(index.contains(i % 10 + 10, fingerprint));
+            }
+        }
+    }
+
+    @Test
+    public void partialRecordIsIgnored() throws IOException {
+        File file = new File(folder.getRoot(), "dedup");
+        try (DedupIndex index = new DedupIndex(file)) {
+            index.add(1, 2);
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{0, 0, 0});
+        }
+        try (DedupIndex index = new DedupIndex(file)) {
+            assertEquals(1, index.size());
+            assertTrue(index.contains(1, 2));
+        }
+    }
+
+    @Test
+    public void fingerprintUsesFirstEightBytes() {
+        byte[] digest = new byte[32];
+        digest[7] = 1;
+        digest[8] = 9;
+        assertEquals(1L, DedupIndex.fingerprint(digest));
+    }
+}
@@ -0,0 +1,141 @@
+package com.asiainfo.ftp01.index;
+
+import com.asiainfo.ftp01.model.SyncStatus;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 同步索引的紧凑目录: 扩容、删除、压缩
+ */
+public class FileCatalogTest {
+
+    @Test
+    public void findsEveryEntryAfterRehash() {
+        FileCatalog catalog = new FileCatalog();
+        int entries = 5000;
+        for (int i = 0; i < entries; i++) {
+            catalog.put(directory(i), name(i), i, 1000L * i, false, SyncStatus.DOWNLOADED);
+        }
+        assertEquals(entries, catalog.size());
+        assertEquals(7, catalog.directoryCount());
+        for (int i = 0; i < entries; i++) {
+            int index = catalog.find(directory(i), name(i));
+            assertTrue(name(i), index >= 0);
+            assertEquals(i, catalog.getSize(index));
+            assertEquals(1000L * i, catalog.getTimestamp(index));
+            assertEquals(directory(i) + "/" + name(i), catalog.getRemoteFile(index));
+        }
+        assertEquals(-1, catalog.find(directory(0), "missing.txt"));
+        assertEquals(-1, catalog.find("unknown", name(0)));
+    }
+
+    @Test
+    public void putUpdatesExistingEntry() {
+        FileCatalog catalog = new FileCatalog();
+        int index = catalog.put("in", "a.txt", 1, 1, false, SyncStatus.FAILED);
+        assertEquals(index, catalog.put("in", "a.txt", 2, 3, false, SyncStatus.DOWNLOADED));
+        assertEquals(1, catalog.size());
+        assertEquals(2, catalog.getSize(index));
+        assertEquals(SyncStatus.DOWNLOADED, catalog.getStatus(index));
+    }
+
+    @Test
+    public void precisionFlagIsKeptWithStatus() {
+        FileCatalog catalog = new FileCatalog();
+        int index = catalog.put("in", "a.txt", 1, 60000, true, SyncStatus.FAILED);
+        catalog.setStatus(index, SyncStatus.QUARANTINED);
+        assertTrue(catalog.isCoarse(index));
+        assertEquals(SyncStatus.QUARANTINED, catalog.getStatus(index));
+        FileCatalog compacted = catalog.compact();
+        int moved = compacted.find("in", "a.txt");
+        assertTrue(compacted.isCoarse(moved));
+        assertEquals(SyncStatus.QUARANTINED, compacted.getStatus(moved));
+        catalog.put("in", "a.txt", 1, 61000, false, SyncStatus.DOWNLOADED);
+        assertFalse(catalog.isCoarse(index));
+        catalog.remove(index);
+        assertTrue(catalog.isRemoved(index));
+    }
+
+    @Test
+    public void nonAsciiNames() {
+        FileCatalog catalog = new FileCatalog();
+        int index = catalog.put("上传/设备", "话单_01.txt", 1, 1, false, SyncStatus.DOWNLOADED);
+        assertEquals(index, catalog.find("上传/设备", "话单_01.txt"));
+        assertEquals("话单_01.txt", catalog.getName(index));
+        assertEquals(-1, catalog.find("上传/设备", "话单_02.txt"));
+    }
+
+    @Test
+    public void removeKeepsProbeChainsIntact() {
+        FileCatalog catalog = new FileCatalog();
+        Map<String, Boolean> expected = new HashMap<>();
+        int entries = 3000;
+        for (int i = 0; i < entries; i++) {
+            catalog.put(directory(i), name(i), i, i, false, SyncStatus.DOWNLOADED);
+            expected.put(directory(i) + "/" + name(i), true);
+        }
+        Random random = new Random(7);
+        for (int round = 0; round < 2000; round++) {
+            int i = random.nextInt(entries);
+            String key = directory(i) + "/" + name(i);
+            int index = catalog.find(directory(i), name(i));
+            if (expected.get(key)) {
+                catalog.remove(index);
+                assertTrue(catalog.isRemoved(index));
+                expected.put(key, false);
+            } else {
+                assertEquals(-1, index);
+                catalog.put(directory(i), name(i), i, i, false, SyncStatus.DOWNLOADED);
+                expected.put(key, true);
+            }
+        }
+        int live = 0;
+        for (int i = 0; i < entries; i++) {
+            boolean present = expected.get(directory(i) + "/" + name(i));
+            assertEquals(name(i), present, catalog.find(directory(i), name(i)) >= 0);
+            live += present ? 1 : 0;
+        }
+        assertEquals(live, catalog.size());
+        assertTrue(catalog.limit() > catalog.size());
+
+        FileCatalog compacted = catalog.compact();
+        assertEquals(live, compacted.size());
+        assertEquals(live, compacted.limit());
+        for (int i = 0; i < entries; i++) {
+            int index = compacted.find(directory(i), name(i));
+            assertEquals(expected.get(directory(i) + "/" + name(i)), index >= 0);
+            if (index >= 0) {
+                assertFalse(compacted.isRemoved(index));
+                assertEquals(i, compacted.getSize(index));
+            }
+        }
+    }
+
+    @Test
+    public void removeTwiceIsIgnored() {
+        FileCatalog catalog = new FileCatalog();
+        int index = catalog.put("in", "a.txt", 1, 1, false, SyncStatus.DOWNLOADED);
+        catalog.put("in", "b.txt", 1, 1, false, SyncStatus.DOWNLOADED);
+        catalog.remove(index);
+        catalog.remove(index);
+        assertEquals(1, catalog.size());
+        assertTrue(catalog.find("in", "b.txt") >= 0);
+    }
+
+    private static String directory(int i) {
+        return "outgoing/device_" + i % 7;
+    }
+
+    private static String name(int i) {
+        return "ftpc270_" + i + ".txt.gz";
+    }
+}
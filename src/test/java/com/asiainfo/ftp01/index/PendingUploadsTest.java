@@ -0,0 +1,83 @@
+package com.asiainfo.ftp01.index;
+
+import com.asiainfo.ftp01.model.UploadItem;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 待上传文件记录
+ */
+public class PendingUploadsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void pendingItemsSurviveRestart() throws IOException {
+        File log = new File(folder.getRoot(), "pending");
+        File a = folder.newFile("a.txt");
+        File b = folder.newFile("b.txt");
+        File c = folder.newFile("c.txt");
+        try (PendingUploads pending = new PendingUploads(log)) {
+            pending.add(new UploadItem("s1", a));
+            pending.add(new UploadItem("s2", b));
+            pending.add(new UploadItem("s1", c));
+            pending.done(new UploadItem("s2", b));
+        }
+        c.delete();
+        try (PendingUploads pending = new PendingUploads(log)) {
+            List<UploadItem> items = pending.list();
+            assertEquals(1, items.size());
+            assertEquals("s1", items.get(0).getSource());
+            assertEquals(a.getPath(), items.get(0).getFile().getPath());
+        }
+    }
+
+    @Test
+    public void partialLastLineIsIgnored() throws IOException {
+        File log = new File(folder.getRoot(), "pending");
+        File a = folder.newFile("a.txt");
+        File b = folder.newFile("b.txt");
+        try (FileOutputStream out = new FileOutputStream(log)) {
+            out.write(("ADD\ts1\t" + a.getPath() + "\nADD\ts1").getBytes(StandardCharsets.UTF_8));
+        }
+        try (PendingUploads pending = new PendingUploads(log)) {
+            pending.add(new UploadItem("s1", b));
+        }
+        try (PendingUploads pending = new PendingUploads(log)) {
+            assertEquals(2, pending.list().size());
+        }
+    }
+
+    @Test
+    public void compactKeepsOnlyPendingItems() throws IOException {
+        File log = new File(folder.getRoot(), "pending");
+        File keep = folder.newFile("keep.txt");
+        try (PendingUploads pending = new PendingUploads(log)) {
+            for (int i = 0; i < 1200; i++) {
+                UploadItem item = new UploadItem("s1", new File(folder.getRoot(), "f" + i));
+                pending.add(item);
+                pending.done(item);
+            }
+            pending.add(new UploadItem("s1", keep));
+            pending.compactIfNeeded();
+        }
+        List<String> lines = java.nio.file.Files.readAllLines(log.toPath()).stream().filter(l -> !l.isEmpty()).collect(Collectors.toList());
+        assertEquals(1, lines.size());
+        try (PendingUploads pending = new PendingUploads(log)) {
+            assertEquals(keep.getPath(), pending.list().get(0).getFile().getPath());
+        }
+    }
+}
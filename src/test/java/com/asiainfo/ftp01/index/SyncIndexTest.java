@@ -0,0 +1,101 @@
+package com.asiainfo.ftp01.index;
+
+import com.asiainfo.ftp01.model.FileInfo;
+import com.asiainfo.ftp01.model.SyncStatus;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 同步索引的日志恢复与删除记录
+ */
+public class SyncIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void removedEntriesStayRemovedAfterRestart() throws IOException {
+        File file = new File(folder.getRoot(), "sync.log");
+        FileInfo a = new FileInfo("in", "a.txt", 10, 60000);
+        FileInfo b = new FileInfo("in", "b.txt", 20, 60000);
+        try (SyncIndex index = new SyncIndex(file)) {
+            index.mark(a, SyncStatus.DOWNLOADED);
+            index.mark(b, SyncStatus.QUARANTINED);
+            index.remove(a);
+            index.remove(new FileInfo("in", "missing.txt", 1, 1));
+            assertFalse(index.isSynced(a));
+            assertEquals(1, index.size());
+        }
+        try (SyncIndex index = new SyncIndex(file)) {
+            assertEquals(1, index.size());
+            assertNull(index.get("in/a.txt"));
+            assertTrue(index.isQuarantined(b));
+            assertEquals(Collections.singletonList("in/b.txt"), index.list(SyncStatus.QUARANTINED));
+            index.mark(a, SyncStatus.DOWNLOADED);
+            assertTrue(index.isSynced(a));
+        }
+    }
+
+    @Test
+    public void timestampPrecisionIsRecorded() throws IOException {
+        File file = new File(folder.getRoot(), "sync.log");
+        // MLSD的精确时间恰好落在整分上
+        FileInfo exact = new FileInfo("in", "a.txt", 10, 1_700_000_040_000L);
+        FileInfo listed = new FileInfo("in", "b.txt", 20, 1_700_000_040_000L);
+        listed.setCoarseTimestamp(true);
+        try (SyncIndex index = new SyncIndex(file)) {
+            index.mark(exact, SyncStatus.DOWNLOADED);
+            index.mark(listed, SyncStatus.DOWNLOADED);
+        }
+        try (SyncIndex index = new SyncIndex(file)) {
+            // 同样精度的时间必须完全相等: 一天内以同样大小重新发布的文件要重新下载
+            assertFalse(index.isSynced(new FileInfo("in", "a.txt", 10, 1_700_000_041_000L)));
+            assertFalse(index.isSynced(coarse(new FileInfo("in", "b.txt", 20, 1_700_000_100_000L))));
+            assertTrue(index.isSynced(coarse(new FileInfo("in", "b.txt", 20, 1_700_000_040_000L))));
+            // 切换列表方式: 不同精度的时间相差一天以内视为相同
+            assertTrue(index.isSynced(new FileInfo("in", "b.txt", 20, 1_700_000_041_000L + 8 * 3600 * 1000L)));
+            assertTrue(index.isSynced(coarse(new FileInfo("in", "a.txt", 10, 1_700_000_040_000L - 8 * 3600 * 1000L))));
+            assertFalse(index.isSynced(new FileInfo("in", "b.txt", 20, 1_700_000_040_000L + 25 * 3600 * 1000L)));
+        }
+    }
+
+    @Test
+    public void partialLastLineIsIgnored() throws IOException {
+        File file = new File(folder.getRoot(), "sync.log");
+        FileInfo a = new FileInfo("in", "a.txt", 10, 60000);
+        try (SyncIndex index = new SyncIndex(file)) {
+            index.mark(a, SyncStatus.DOWNLOADED);
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write("DOWNLOADED\t5\t".getBytes(StandardCharsets.UTF_8));
+        }
+        FileInfo b = new FileInfo("in", "b.txt", 20, 60000);
+        try (SyncIndex index = new SyncIndex(file)) {
+            assertEquals(1, index.size());
+            index.mark(b, SyncStatus.DOWNLOADED);
+        }
+        try (SyncIndex index = new SyncIndex(file)) {
+            assertTrue(index.isSynced(a));
+            assertTrue(index.isSynced(b));
+        }
+    }
+
+    private static FileInfo coarse(FileInfo fileInfo) {
+        fileInfo.setCoarseTimestamp(true);
+        return fileInfo;
+    }
+}
@@ -0,0 +1,71 @@
+package com.asiainfo.ftp01.throttle;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 令牌桶限速
+ */
+public class TokenBucketTest {
+
+    @Test
+    public void zeroRateDoesNotThrottle() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(0);
+        long start = System.nanoTime();
+        bucket.acquire(Long.MAX_VALUE / 2);
+        assertTrue(elapsedMillis(start) < 100);
+        assertEquals(0, bucket.getWaitNanos());
+    }
+
+    @Test
+    public void burstUpToOneSecondThenWait() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000);
+        long start = System.nanoTime();
+        bucket.acquire(1000);
+        assertTrue(elapsedMillis(start) < 100);
+        // 桶已空, 再取200个令牌约等待200ms
+        bucket.acquire(200);
+        long elapsed = elapsedMillis(start);
+        assertTrue("elapsed " + elapsed, elapsed >= 150 && elapsed < 1000);
+        assertTrue(bucket.getWaitNanos() > 0);
+    }
+
+    @Test
+    public void debtIsPaidInArrivalOrder() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000);
+        bucket.acquire(1000);
+        long start = System.nanoTime();
+        // 第二次预支排在第一次之后, 共约等待400ms
+        bucket.acquire(200);
+        bucket.acquire(200);
+        long elapsed = elapsedMillis(start);
+        assertTrue("elapsed " + elapsed, elapsed >= 300 && elapsed < 1500);
+    }
+
+    @Test
+    public void setRateClampsAccumulatedTokens() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100000);
+        bucket.setRate(100);
+        assertEquals(100, bucket.getRate());
+        long start = System.nanoTime();
+        bucket.acquire(100);
+        // 积累的令牌已降到新速率, 再取50个约等待500ms
+        bucket.acquire(50);
+        long elapsed = elapsedMillis(start);
+        assertTrue("elapsed " + elapsed, elapsed >= 400 && elapsed < 2000);
+        bucket.setRate(0);
+        start = System.nanoTime();
+        bucket.acquire(1000000);
+        assertTrue(elapsedMillis(start) < 100);
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,140 @@
+package com.asiainfo.ftp01.transform;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 记录文件的变长整数与行、列格式编码
+ */
+public class RecordWriterTest {
+
+    @Test
+    public void varint() throws IOException {
+        assertArrayEquals(new byte[]{0}, varint(0));
+        assertArrayEquals(new byte[]{0x7f}, varint(127));
+        assertArrayEquals(new byte[]{(byte) 0x80, 0x01}, varint(128));
+        assertArrayEquals(new byte[]{(byte) 0xac, 0x02}, varint(300));
+        assertArrayEquals(new byte[]{(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07}, varint(Integer.MAX_VALUE));
+        for (int value : new int[]{0, 1, 127, 128, 16383, 16384, 1 << 21, Integer.MAX_VALUE}) {
+            assertEquals(value, readVarint(new DataInputStream(new ByteArrayInputStream(varint(value)))));
+        }
+    }
+
+    @Test
+    public void rows() throws IOException {
+        List<String[]> records = Arrays.asList(new String[]{"a", "", "话单"}, new String[]{"b"}, new String[]{});
+        assertEquals(records.stream().map(Arrays::asList).collect(Collectors.toList()),
+                decode(encode("rows", 100, records)));
+    }
+
+    @Test
+    public void columnsAcrossBlocksWithJaggedRecords() throws IOException {
+        List<String[]> records = new ArrayList<>();
+        records.add(new String[]{"1", "x"});
+        records.add(new String[]{"2"});
+        // 新出现的第三列, 之前的记录补空
+        records.add(new String[]{"3", "y", "z"});
+        records.add(new String[]{"4", "", "长字段" + new String(new char[200]).replace('\0', 'w')});
+        records.add(new String[]{"5"});
+        List<List<String>> expected = Arrays.asList(
+                Arrays.asList("1", "x", ""), Arrays.asList("2", "", ""), Arrays.asList("3", "y", "z"),
+                Arrays.asList("4", "", records.get(3)[2]), Arrays.asList("5", "", ""));
+        List<List<String>> decoded = decode(encode("columns", 2, records));
+        // 第一块只有两列
+        assertEquals(Arrays.asList("1", "x"), decoded.get(0));
+        assertEquals(Arrays.asList("2", ""), decoded.get(1));
+        assertEquals(expected.subList(2, 5), decoded.subList(2, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFormat() throws IOException {
+        RecordWriter.open("csv", new ByteArrayOutputStream(), 1);
+    }
+
+    private static byte[] varint(int value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordWriter.writeVarint(out, value);
+        return out.toByteArray();
+    }
+
+    private static byte[] encode(String format, int blockRecords, List<String[]> records) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RecordWriter writer = RecordWriter.open(format, out, blockRecords)) {
+            for (String[] record : records) {
+                writer.write(record);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static List<List<String>> decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte[] magic = new byte[4];
+        in.readFully(magic);
+        assertArrayEquals(RecordWriter.MAGIC, magic);
+        int format = in.read();
+        List<List<String>> records = new ArrayList<>();
+        while (in.available() > 0) {
+            if (format == 'R') {
+                int fields = readVarint(in);
+                List<String> record = new ArrayList<>();
+                for (int i = 0; i < fields; i++) {
+                    record.add(readField(in));
+                }
+                records.add(record);
+            } else {
+                int count = readVarint(in);
+                int columns = readVarint(in);
+                String[][] values = new String[count][columns];
+                for (int j = 0; j < columns; j++) {
+                    int length = readVarint(in);
+                    DataInputStream column = new DataInputStream(new ByteArrayInputStream(readBytes(in, length)));
+                    for (int i = 0; i < count; i++) {
+                        values[i][j] = readField(column);
+                    }
+                    assertEquals(0, column.available());
+                }
+                for (String[] record : values) {
+                    records.add(Arrays.asList(record));
+                }
+            }
+        }
+        return records;
+    }
+
+    private static String readField(DataInputStream in) throws IOException {
+        return new String(readBytes(in, readVarint(in)), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,91 @@
+package com.asiainfo.ftp01.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author king-pan
+ * @date 2026/10/17
+ * @Description 本地文件的写入、续写与提交
+ */
+public class NioFilesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeStreamLargerThanBuffer() throws IOException {
+        byte[] data = random(1024 * 1024 + 17);
+        File file = new File(folder.getRoot(), "a.part");
+        // 不是本地文件流, 经缓冲区拷贝; 每次只返回少量数据
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(data)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+        assertEquals(data.length, NioFiles.write(in, file, 0));
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void resumeKeepsPrefixAndTruncatesRest() throws IOException {
+        byte[] previous = random(700 * 1024);
+        File file = new File(folder.getRoot(), "a.part");
+        Files.write(file.toPath(), previous);
+        // 前100字节为上次已下载的部分
+        byte[] data = random(600 * 1024);
+        System.arraycopy(previous, 0, data, 0, 100);
+        assertEquals(data.length - 100, NioFiles.write(new ByteArrayInputStream(data, 100, data.length - 100), file, 100));
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void writeFromFileUsesRemainingBytes() throws IOException {
+        byte[] data = random(300 * 1024);
+        File source = folder.newFile("source");
+        Files.write(source.toPath(), data);
+        File file = new File(folder.getRoot(), "b.part");
+        try (FileInputStream in = new FileInputStream(source)) {
+            assertEquals(10, in.skip(10));
+            assertEquals(data.length - 10, NioFiles.write(in, file, 0));
+        }
+        assertArrayEquals(Arrays.copyOfRange(data, 10, data.length), Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void commitReplacesTarget() throws IOException {
+        File target = folder.newFile("c.txt");
+        Files.write(target.toPath(), new byte[]{1});
+        File temp = NioFiles.staging(target);
+        assertEquals("." + target.getName() + NioFiles.STAGING_EXT, temp.getName());
+        Files.write(temp.toPath(), new byte[]{2, 3});
+        NioFiles.commit(temp, target);
+        assertFalse(temp.exists());
+        assertArrayEquals(new byte[]{2, 3}, Files.readAllBytes(target.toPath()));
+        File copy = new File(folder.getRoot(), "d.txt");
+        assertEquals(2, NioFiles.copy(target, copy));
+        assertArrayEquals(new byte[]{2, 3}, Files.readAllBytes(copy.toPath()));
+    }
+
+    private static byte[] random(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+}